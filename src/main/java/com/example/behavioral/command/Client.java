@@ -1,8 +1,17 @@
 package com.example.behavioral.command;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
 public class Client {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException, InterruptedException {
         ReleaseExecutor releaseExecutor = new ReleaseExecutor();
         Command gitCloneCommand = new GitCloneCommand(releaseExecutor);
         Command buildCommand = new BuildCommand(releaseExecutor);
@@ -16,6 +25,97 @@ public class Client {
         } catch (Exception e) {
             releasePipeline.undo();
         }
+        System.out.println("=====================");
+        // 并行执行：两个模块各自拉取、构建，全部构建完成后再部署
+        Command cloneA = new GitCloneCommand(releaseExecutor);
+        Command cloneB = new GitCloneCommand(releaseExecutor);
+        Command buildA = new BuildCommand(releaseExecutor);
+        Command buildB = new BuildCommand(releaseExecutor);
+        Command deploy = new DeployCommand(releaseExecutor);
+        ReleasePipeline parallelPipeline = new ReleasePipeline();
+        PipelineMetrics metrics = new PipelineMetrics();
+        parallelPipeline.setMetrics(metrics);
+        parallelPipeline.addCommand(cloneA);
+        parallelPipeline.addCommand(cloneB);
+        parallelPipeline.addCommand(buildA, cloneA);
+        parallelPipeline.addCommand(buildB, cloneB);
+        parallelPipeline.addCommand(deploy, buildA, buildB);
+        ExecutorService executor = Executors.newFixedThreadPool(4); // JDK 21+ 可换成 Executors.newVirtualThreadPerTaskExecutor()
+        try {
+            parallelPipeline.execute(executor); // 失败时已自动撤销完成的命令
+        } finally {
+            executor.shutdown();
+        }
+        System.out.print(metrics.report()); // 每类命令的耗时分布
+        System.out.println("=====================");
+        // 增量执行：输入未变化时第二次构建被跳过
+        Path workspace = Files.createTempDirectory("release");
+        Path source = Files.writeString(workspace.resolve("App.java"), "class App {}");
+        Command incrementalBuild = new IncrementalCommand(new BuildCommand(releaseExecutor), "app",
+                List.of(source), List.of(), workspace.resolve(".cache"));
+        incrementalBuild.execute(); // 编译代码
+        incrementalBuild.execute(); // 命中缓存，不再编译
+        Files.writeString(source, "class App { int version = 2; }");
+        incrementalBuild.execute(); // 输入变化，重新编译
+        System.out.println("=====================");
+        // 发布日志：崩溃重启后通过 resume() 跳过已完成的命令
+        Path journalFile = workspace.resolve("release.journal");
+        try (ReleaseJournal journal = ReleaseJournal.open(journalFile, 1024)) {
+            ReleasePipeline journaledPipeline = new ReleasePipeline();
+            journaledPipeline.addCommand(new GitCloneCommand(releaseExecutor));
+            journaledPipeline.addCommand(new BuildCommand(releaseExecutor));
+            journaledPipeline.setJournal(journal);
+            journaledPipeline.execute();
+        }
+        try (ReleaseJournal journal = ReleaseJournal.open(journalFile, 1024)) {
+            ReleasePipeline resumedPipeline = new ReleasePipeline();
+            resumedPipeline.addCommand(new GitCloneCommand(releaseExecutor));
+            resumedPipeline.addCommand(new BuildCommand(releaseExecutor));
+            resumedPipeline.addCommand(new DeployCommand(releaseExecutor));
+            resumedPipeline.setJournal(journal);
+            resumedPipeline.resume(); // 只执行部署
+            journal.reset(); // 发布完成，清空日志供下一次发布使用
+        }
+        deleteRecursively(workspace);
+        System.out.println("=====================");
+        // 命令总线：多个线程提交命令，单个消费者批量执行，同一批中同类命令只执行一次
+        CommandBus commandBus = new CommandBus(1024, WaitStrategy.PARK, 64, Command::getClass);
+        Thread producer = new Thread(() -> {
+            commandBus.submit(new BuildCommand(releaseExecutor));
+            commandBus.submit(new BuildCommand(releaseExecutor));
+        });
+        producer.start();
+        commandBus.submit(new GitCloneCommand(releaseExecutor));
+        producer.join();
+        commandBus.start();
+        commandBus.close();
+        System.out.println("执行: " + commandBus.getExecutedCount() + "，合并: " + commandBus.getMergedCount());
+        System.out.println("=====================");
+        // 多租户调度：部署目标同时只允许一个部署、每秒最多 10 次，租户按权重 3:1 分配执行机会
+        ReleaseScheduler scheduler = new ReleaseScheduler(4);
+        scheduler.registerTenant("team-a", 3);
+        scheduler.registerTenant("team-b", 1);
+        scheduler.limitResource(DeployCommand.class, 1, 10, 1);
+        ReleasePipeline pipelineA = new ReleasePipeline();
+        pipelineA.addCommand(new BuildCommand(releaseExecutor));
+        pipelineA.addCommand(new DeployCommand(releaseExecutor));
+        ReleasePipeline pipelineB = new ReleasePipeline();
+        pipelineB.addCommand(new BuildCommand(releaseExecutor));
+        pipelineB.addCommand(new DeployCommand(releaseExecutor));
+        scheduler.submit("team-a", pipelineA, 0);
+        scheduler.submit("team-b", pipelineB, 1);
+        scheduler.close(); // 等待已提交的流水线执行完
+    }
+
+    /**
+     * 删除示例用的临时目录
+     */
+    private static void deleteRecursively(Path root) throws IOException {
+        try (Stream<Path> stream = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) stream.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
     }
 
 }
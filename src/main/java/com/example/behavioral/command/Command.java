@@ -9,4 +9,8 @@ public interface Command {
 
     default void undo(){}// 撤销命令（可选）
 
+    default String name() { // 命令名称，耗时统计按名称分组；默认为类名，装饰器和同一类型的不同用途应覆盖
+        return getClass().getSimpleName();
+    }
+
 }
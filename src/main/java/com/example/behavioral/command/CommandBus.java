@@ -0,0 +1,220 @@
+package com.example.behavioral.command;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 命令总线
+ * 多个生产者线程提交命令，单个消费者线程批量取出并执行
+ *
+ * 底层是有界的多生产者单消费者环形队列：每个槽位带一个序号，
+ * 生产者用 CAS 抢占写入位置，消费者按序号判断槽位是否可读，入队时不分配任何对象；
+ * 队列满时生产者按等待策略等待（背压），而不是无限堆积。
+ * 关闭时在写入位置上原子地打上关闭标记：之后的生产者 CAS 失败并抛出异常，
+ * 关闭前抢到位置的命令都在标记之前，消费者执行到标记时的写入位置为止，不会丢失已接受的命令
+ */
+public class CommandBus implements AutoCloseable {
+
+    private final Command[] buffer;
+    private final AtomicLongArray sequences; // 槽位序号：等于写入位置表示可写，等于写入位置 + 1 表示可读
+    private static final long CLOSED = 1L << 62; // 写入位置上的关闭标记
+
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong(); // 下一个写入位置（多生产者竞争），关闭后带 CLOSED 标记
+    private long head; // 下一个读取位置（只有消费者访问）
+
+    private final WaitStrategy waitStrategy;
+    private final int batchSize;
+    private final Function<Command, Object> mergeKey; // 合并键，为 null 时不合并
+    private final Command[] batch; // 消费者复用的批次数组
+    private final Set<Object> batchKeys = new HashSet<>();
+
+    private final AtomicLong executedCount = new AtomicLong();
+    private final AtomicLong mergedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private volatile BiConsumer<Command, Throwable> errorHandler = (command, e) ->
+            System.err.println("命令执行失败: " + command.getClass().getSimpleName() + " - " + e);
+
+    private volatile boolean running;
+    private Thread consumer;
+
+    /**
+     * @param capacity 队列容量，向上取整为 2 的幂
+     * @param waitStrategy 等待策略
+     * @param batchSize 消费者每批最多取出的命令数
+     * @param mergeKey 合并键，同一批中合并键相同的命令只执行最后提交的一条；为 null 时不合并
+     */
+    public CommandBus(int capacity, WaitStrategy waitStrategy, int batchSize, Function<Command, Object> mergeKey) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.buffer = new Command[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.waitStrategy = waitStrategy;
+        this.batchSize = batchSize;
+        this.mergeKey = mergeKey;
+        this.batch = new Command[batchSize];
+    }
+
+    public CommandBus(int capacity, WaitStrategy waitStrategy) {
+        this(capacity, waitStrategy, 256, null);
+    }
+
+    /**
+     * 设置命令执行失败（包括抛出 Error）时的处理器，在消费者线程上调用；默认打印到标准错误输出。
+     * 处理器自身抛出的异常被忽略，不会终止消费者
+     */
+    public void setErrorHandler(BiConsumer<Command, Throwable> errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * 尝试提交命令，队列满时立即返回 false
+     * @throws IllegalStateException 总线已关闭
+     */
+    public boolean offer(Command command) {
+        long pos = tail.get();
+        while (true) {
+            if ((pos & CLOSED) != 0) {
+                throw new IllegalStateException("命令总线已关闭");
+            }
+            int index = (int) (pos & mask);
+            long diff = sequences.getAcquire(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    buffer[index] = command;
+                    sequences.setRelease(index, pos + 1); // 发布
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false; // 队列满
+            } else {
+                pos = tail.get(); // 被其他生产者抢先
+            }
+        }
+    }
+
+    /**
+     * 提交命令，队列满时按等待策略等待
+     * @throws IllegalStateException 总线已关闭（包括等待期间被关闭）
+     */
+    public void submit(Command command) {
+        while (!offer(command)) {
+            waitStrategy.idle();
+        }
+    }
+
+    private Command poll() {
+        int index = (int) (head & mask);
+        if (sequences.getAcquire(index) != head + 1) {
+            return null;
+        }
+        Command command = buffer[index];
+        buffer[index] = null;
+        sequences.setRelease(index, head + buffer.length); // 槽位交还给下一轮生产者
+        head++;
+        return command;
+    }
+
+    /**
+     * 取出一批命令并执行（只能由单个消费者线程调用）
+     * @return 取出的命令数（含被合并的命令）
+     */
+    public int drain() {
+        int count = 0;
+        Command command;
+        while (count < batchSize && (command = poll()) != null) {
+            batch[count++] = command;
+        }
+        if (mergeKey != null) {
+            // 从后往前扫描，合并键重复时丢弃较早提交的命令（最新的生效）
+            for (int i = count - 1; i >= 0; i--) {
+                if (!batchKeys.add(mergeKey.apply(batch[i]))) {
+                    batch[i] = null;
+                    mergedCount.incrementAndGet();
+                }
+            }
+            batchKeys.clear();
+        }
+        for (int i = 0; i < count; i++) {
+            command = batch[i];
+            if (command == null) {
+                continue;
+            }
+            batch[i] = null;
+            try {
+                command.execute();
+                executedCount.incrementAndGet();
+            } catch (Throwable e) {
+                failedCount.incrementAndGet(); // 包括 Error：当作该命令失败处理，消费者继续运行
+                try {
+                    errorHandler.accept(command, e);
+                } catch (Throwable ignored) {
+                    // 处理器失败不影响后续命令
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 启动消费者线程
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        consumer = new Thread(() -> {
+            while (running) {
+                if (drain() == 0) {
+                    waitStrategy.idle();
+                }
+            }
+            long end = tail.get() & ~CLOSED; // 关闭后写入位置不再变化
+            while (head < end) {
+                if (drain() == 0) {
+                    waitStrategy.idle(); // 已抢到位置的生产者还没发布
+                }
+            }
+        }, "command-bus");
+        consumer.start();
+    }
+
+    /**
+     * 停止消费者线程，已入队的命令会执行完；之后提交命令抛出 IllegalStateException。
+     * 等待期间被中断时不再等待消费者结束，保留中断状态
+     */
+    @Override
+    public synchronized void close() {
+        tail.getAndAccumulate(CLOSED, (t, bit) -> t | bit);
+        running = false;
+        if (consumer != null) {
+            try {
+                consumer.join();
+                consumer = null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public long getExecutedCount() {
+        return executedCount.get();
+    }
+
+    public long getMergedCount() {
+        return mergedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+}
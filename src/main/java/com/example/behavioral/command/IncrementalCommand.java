@@ -0,0 +1,187 @@
+package com.example.behavioral.command;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 增量命令（装饰器）
+ * 包装任意命令，声明它的输入和输出；根据输入内容计算指纹并保存在本地缓存目录，
+ * 指纹与上次一致时跳过执行，直接从缓存恢复输出。
+ * 命令执行后没有生成某个声明的输出时抛出异常，避免缓存始终不完整、每次都悄悄重新执行
+ */
+public class IncrementalCommand implements Command {
+
+    private static final String FINGERPRINT_FILE = "fingerprint";
+    private static final String OUTPUTS_DIR = "outputs";
+
+    private final Command command; // 被包装的命令
+    private final List<Path> inputs; // 输入文件或目录
+    private final List<Path> outputs; // 输出文件或目录
+    private final Path cacheDir; // 该命令的缓存目录
+    private final String name; // 命令在缓存中的唯一名称
+
+    /**
+     * @param command 被包装的命令
+     * @param name 命令在缓存中的唯一名称，例如模块名
+     * @param inputs 输入文件或目录
+     * @param outputs 输出文件或目录
+     * @param cacheRoot 缓存根目录
+     */
+    public IncrementalCommand(Command command, String name, List<Path> inputs, List<Path> outputs, Path cacheRoot) {
+        this.command = command;
+        this.inputs = List.copyOf(inputs);
+        this.outputs = List.copyOf(outputs);
+        this.cacheDir = cacheRoot.resolve(name);
+        this.name = name;
+    }
+
+    /**
+     * 以缓存名称作为命令名称，不同的增量命令分别统计耗时
+     */
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public void execute() {
+        try {
+            String fingerprint = fingerprint();
+            if (fingerprint.equals(storedFingerprint()) && restoreOutputs()) {
+                return; // 输入未变化，跳过执行
+            }
+            command.execute();
+            storeOutputs(fingerprint);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void undo() {
+        command.undo();
+    }
+
+    /**
+     * 计算指纹：命令类型 + 每个输入文件的相对路径和内容（SHA-256）
+     */
+    private String fingerprint() throws IOException {
+        MessageDigest digest = sha256();
+        digest.update(command.getClass().getName().getBytes(StandardCharsets.UTF_8));
+        byte[] buffer = new byte[8192];
+        for (Path input : inputs) {
+            digest.update((byte) 0);
+            if (!Files.exists(input)) {
+                digest.update(("missing:" + input).getBytes(StandardCharsets.UTF_8));
+                continue;
+            }
+            for (Path file : regularFiles(input)) {
+                digest.update(input.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                try (InputStream in = Files.newInputStream(file)) {
+                    int n;
+                    while ((n = in.read(buffer)) > 0) {
+                        digest.update(buffer, 0, n);
+                    }
+                }
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private String storedFingerprint() throws IOException {
+        Path file = cacheDir.resolve(FINGERPRINT_FILE);
+        return Files.exists(file) ? Files.readString(file) : null;
+    }
+
+    /**
+     * 从缓存恢复输出，缓存不完整时返回 false
+     */
+    private boolean restoreOutputs() throws IOException {
+        for (int i = 0; i < outputs.size(); i++) {
+            if (!Files.exists(cachedOutput(i))) {
+                return false;
+            }
+        }
+        for (int i = 0; i < outputs.size(); i++) {
+            delete(outputs.get(i));
+            copy(cachedOutput(i), outputs.get(i));
+        }
+        return true;
+    }
+
+    /**
+     * 保存输出到缓存，指纹最后写入，保证中途失败时不会留下可用的旧指纹
+     * @throws IllegalStateException 命令没有生成声明的输出
+     */
+    private void storeOutputs(String fingerprint) throws IOException {
+        List<Path> missing = outputs.stream().filter(output -> !Files.exists(output)).collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("命令执行后没有生成声明的输出: " + missing);
+        }
+        Files.deleteIfExists(cacheDir.resolve(FINGERPRINT_FILE));
+        delete(cacheDir.resolve(OUTPUTS_DIR));
+        for (int i = 0; i < outputs.size(); i++) {
+            copy(outputs.get(i), cachedOutput(i));
+        }
+        Files.createDirectories(cacheDir);
+        Path tmp = cacheDir.resolve(FINGERPRINT_FILE + ".tmp");
+        Files.writeString(tmp, fingerprint);
+        Files.move(tmp, cacheDir.resolve(FINGERPRINT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path cachedOutput(int index) {
+        return cacheDir.resolve(OUTPUTS_DIR).resolve(String.valueOf(index));
+    }
+
+    private static List<Path> regularFiles(Path root) throws IOException {
+        try (Stream<Path> stream = Files.walk(root)) {
+            return stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static void copy(Path source, Path target) throws IOException {
+        try (Stream<Path> stream = Files.walk(source)) {
+            for (Path path : (Iterable<Path>) stream::iterator) {
+                Path dest = target.resolve(source.relativize(path).toString());
+                if (Files.isDirectory(path)) {
+                    Files.createDirectories(dest);
+                } else {
+                    Files.createDirectories(dest.toAbsolutePath().getParent());
+                    Files.copy(path, dest, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+    }
+
+    private static void delete(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> stream = Files.walk(path)) {
+            for (Path p : (Iterable<Path>) stream.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
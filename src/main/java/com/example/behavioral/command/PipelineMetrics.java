@@ -0,0 +1,99 @@
+package com.example.behavioral.command;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 流水线耗时统计
+ * 按命令名称（{@link Command#name()}）分别记录 execute() 和 undo() 的延迟直方图，
+ * 提供百分位数（p50、p90、p99、max）和吞吐量，运行结束后可以输出报告
+ */
+public class PipelineMetrics {
+
+    private final Map<String, LatencyHistogram> executeLatency = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> undoLatency = new ConcurrentHashMap<>();
+    private final long startNanos = System.nanoTime();
+
+    public void recordExecute(Command command, long nanos) {
+        histogram(executeLatency, command.name()).record(nanos);
+    }
+
+    public void recordUndo(Command command, long nanos) {
+        histogram(undoLatency, command.name()).record(nanos);
+    }
+
+    private static LatencyHistogram histogram(Map<String, LatencyHistogram> histograms, String name) {
+        LatencyHistogram histogram = histograms.get(name); // 已存在时不走 computeIfAbsent，避免分配
+        return histogram != null ? histogram : histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    /**
+     * 某个命令名称 execute() 的延迟直方图，没有记录时返回一个新的空直方图（不属于本统计）
+     */
+    public LatencyHistogram getExecuteLatency(String name) {
+        LatencyHistogram histogram = executeLatency.get(name);
+        return histogram != null ? histogram : new LatencyHistogram();
+    }
+
+    /**
+     * 按默认名称（类名）查询，适用于没有覆盖 {@link Command#name()} 的命令
+     */
+    public LatencyHistogram getExecuteLatency(Class<? extends Command> type) {
+        return getExecuteLatency(type.getSimpleName());
+    }
+
+    /**
+     * 某个命令名称 undo() 的延迟直方图，没有记录时返回一个新的空直方图（不属于本统计）
+     */
+    public LatencyHistogram getUndoLatency(String name) {
+        LatencyHistogram histogram = undoLatency.get(name);
+        return histogram != null ? histogram : new LatencyHistogram();
+    }
+
+    /**
+     * 按默认名称（类名）查询，适用于没有覆盖 {@link Command#name()} 的命令
+     */
+    public LatencyHistogram getUndoLatency(Class<? extends Command> type) {
+        return getUndoLatency(type.getSimpleName());
+    }
+
+    /**
+     * 某个命令名称 execute() 的吞吐量（次/秒），从统计开始计算
+     */
+    public double getExecuteThroughput(String name) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return getExecuteLatency(name).getCount() / seconds;
+    }
+
+    /**
+     * 按默认名称（类名）查询吞吐量
+     */
+    public double getExecuteThroughput(Class<? extends Command> type) {
+        return getExecuteThroughput(type.getSimpleName());
+    }
+
+    /**
+     * 耗时报告（单位：微秒）
+     */
+    public String report() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-24s %-8s %8s %10s %10s %10s %10s %10s%n",
+                "command", "phase", "count", "p50", "p90", "p99", "max", "ops/s"));
+        append(sb, "execute", executeLatency, seconds);
+        append(sb, "undo", undoLatency, seconds);
+        return sb.toString();
+    }
+
+    private static void append(StringBuilder sb, String phase, Map<String, LatencyHistogram> histograms, double seconds) {
+        histograms.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> {
+                    LatencyHistogram h = e.getValue();
+                    sb.append(String.format("%-24s %-8s %8d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                            e.getKey(), phase, h.getCount(),
+                            h.percentile(50) / 1e3, h.percentile(90) / 1e3, h.percentile(99) / 1e3,
+                            h.getMaxNanos() / 1e3, h.getCount() / seconds));
+                });
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.behavioral.command;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.zip.CRC32;
+
+/**
+ * 发布日志（预写日志）
+ * 基于内存映射文件的只追加日志，记录每个命令的开始、完成和撤销事件，
+ * JVM 崩溃后重新打开即可恢复哪些命令已经完成
+ *
+ * 记录格式（定长 9 字节）：事件类型(1) + 命令下标(4) + CRC32 校验(4)，
+ * 类型为 0 或校验失败的位置即日志末尾（未写完的记录被丢弃）。
+ * 一次发布全部完成后调用 {@link #reset()} 清空日志，下一次发布才能复用同一个文件
+ */
+public class ReleaseJournal implements AutoCloseable {
+
+    /**
+     * 日志事件
+     */
+    public enum Event {
+        START, FINISH, UNDO
+    }
+
+    private static final int RECORD_SIZE = 9;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final BitSet completed = new BitSet(); // 已完成且未撤销的命令
+    private final CRC32 crc = new CRC32();
+    private int position; // 下一条记录的写入位置
+    private int syncedPosition; // 已经刷盘的位置
+
+    private ReleaseJournal(FileChannel channel, MappedByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+        recover();
+    }
+
+    /**
+     * 打开（或创建）日志文件
+     * 已有文件比 capacity 大时映射整个文件，不会丢弃映射范围之外的记录
+     * @param file 日志文件
+     * @param capacity 最多能记录的事件数
+     * @throws IllegalArgumentException 文件中已有的记录数超过 capacity
+     */
+    public static ReleaseJournal open(Path file, int capacity) {
+        if (capacity <= 0 || (long) capacity * RECORD_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("日志容量超出范围: " + capacity);
+        }
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = Math.max((long) capacity * RECORD_SIZE, channel.size() / RECORD_SIZE * RECORD_SIZE);
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("日志文件超过 2GB: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            ReleaseJournal journal = new ReleaseJournal(channel, buffer);
+            if (journal.position > capacity * RECORD_SIZE) {
+                throw new IllegalArgumentException("日志中已有 " + journal.position / RECORD_SIZE + " 条记录，超过容量 " + capacity);
+            }
+            return journal;
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // 忽略，保留原始异常
+        }
+    }
+
+    /**
+     * 顺序扫描日志，时间与日志长度成正比
+     */
+    private void recover() {
+        int pos = 0;
+        while (pos + RECORD_SIZE <= buffer.capacity()) {
+            byte type = buffer.get(pos);
+            int index = buffer.getInt(pos + 1);
+            if (type <= 0 || type > Event.values().length || buffer.getInt(pos + 5) != checksum(type, index)) {
+                break;
+            }
+            Event event = Event.values()[type - 1];
+            if (event == Event.FINISH) {
+                completed.set(index);
+            } else if (event == Event.UNDO) {
+                completed.clear(index);
+            }
+            pos += RECORD_SIZE;
+        }
+        position = pos;
+        syncedPosition = pos;
+    }
+
+    /**
+     * 追加一条事件，只写入映射内存，调用 {@link #sync()} 时才批量刷盘
+     */
+    public synchronized void append(Event event, int index) {
+        if (position + RECORD_SIZE > buffer.capacity()) {
+            throw new IllegalStateException("发布日志已满: " + buffer.capacity() / RECORD_SIZE + " 条");
+        }
+        byte type = (byte) (event.ordinal() + 1);
+        buffer.put(position, type);
+        buffer.putInt(position + 1, index);
+        buffer.putInt(position + 5, checksum(type, index));
+        position += RECORD_SIZE;
+        if (event == Event.FINISH) {
+            completed.set(index);
+        } else if (event == Event.UNDO) {
+            completed.clear(index);
+        }
+    }
+
+    /**
+     * 把上次刷盘之后追加的记录一次性写回磁盘，只刷新脏区间
+     */
+    public synchronized void sync() {
+        if (position > syncedPosition) {
+            buffer.force(syncedPosition, position - syncedPosition);
+            syncedPosition = position;
+        }
+    }
+
+    /**
+     * 清空日志，开始新的一次发布
+     * 先清零后面的记录、最后清零第一条并分别刷盘：中途崩溃时日志要么仍是旧日志的前缀，
+     * 要么已经为空，不会在新记录后面残留旧记录
+     */
+    public synchronized void reset() {
+        if (position > RECORD_SIZE) {
+            buffer.put(RECORD_SIZE, new byte[position - RECORD_SIZE]);
+            buffer.force(RECORD_SIZE, position - RECORD_SIZE);
+        }
+        if (position > 0) {
+            buffer.put(0, new byte[RECORD_SIZE]);
+            buffer.force(0, RECORD_SIZE);
+        }
+        position = 0;
+        syncedPosition = 0;
+        completed.clear();
+    }
+
+    /**
+     * 已完成且未被撤销的命令下标
+     */
+    public synchronized BitSet completedCommands() {
+        return (BitSet) completed.clone();
+    }
+
+    private int checksum(byte type, int index) {
+        crc.reset();
+        crc.update(type);
+        crc.update(index >>> 24);
+        crc.update(index >>> 16);
+        crc.update(index >>> 8);
+        crc.update(index);
+        return (int) crc.getValue();
+    }
+
+    @Override
+    public synchronized void close() {
+        sync();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,25 +1,179 @@
 package com.example.behavioral.command;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
 
 public class ReleasePipeline {
 
     private final List<Command> commands = new ArrayList<Command>();
+    private final Map<Command, List<Command>> dependencies = new IdentityHashMap<>(); // 命令 -> 依赖的命令
+    private ReleaseJournal journal; // 发布日志（可选）
+    private PipelineMetrics metrics; // 耗时统计（可选）
+
+    /**
+     * 设置发布日志，执行和撤销时按命令下标记录事件
+     */
+    public void setJournal(ReleaseJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * 设置耗时统计，记录每个命令 execute() 和 undo() 的延迟
+     */
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
 
     public void addCommand(Command command) {
+        addCommand(command, new Command[0]);
+    }
+
+    /**
+     * 添加命令，并声明它依赖的命令
+     * 依赖的命令必须先添加到流水线中，因此依赖关系天然无环；同一个命令实例只能添加一次
+     * @param command 命令
+     * @param dependsOn 依赖的命令
+     */
+    public void addCommand(Command command, Command... dependsOn) {
+        if (dependencies.containsKey(command)) {
+            throw new IllegalArgumentException("命令已经添加到流水线: " + command);
+        }
+        for (Command dependency : dependsOn) {
+            if (!dependencies.containsKey(dependency)) {
+                throw new IllegalArgumentException("依赖的命令必须先添加到流水线: " + dependency);
+            }
+        }
         commands.add(command);
+        dependencies.put(command, List.of(dependsOn));
     }
 
+    /**
+     * 从头顺序执行，设置了发布日志时先清空日志
+     */
     public void execute() {
-        for (Command command : commands) {
-            command.execute();
+        resetJournal();
+        for (int i = 0; i < commands.size(); i++) {
+            run(i);
+        }
+    }
+
+    /**
+     * 从发布日志恢复：跳过已经完成的命令，继续执行剩下的命令
+     * 崩溃时正在执行（已开始未完成）的命令会重新执行
+     */
+    public void resume() {
+        if (journal == null) {
+            throw new IllegalStateException("未设置发布日志");
+        }
+        BitSet completed = journal.completedCommands();
+        for (int i = 0; i < commands.size(); i++) {
+            if (!completed.get(i)) {
+                run(i);
+            }
+        }
+    }
+
+    /**
+     * 按依赖关系并行执行（DAG）
+     * 互不依赖的命令在 executor 上并发执行，命令只在其依赖全部完成后才开始；
+     * 任一命令失败时，只撤销已经完成的命令，按完成顺序的逆序（即逆拓扑序）执行 undo；
+     * 某个 undo 抛出异常时继续撤销其余命令，该异常作为被抑制的异常附加到原始失败上
+     * @param executor 执行器，可以是平台线程池，也可以是虚拟线程执行器（JDK 21+）
+     */
+    public void execute(Executor executor) {
+        resetJournal();
+        Map<Command, CompletableFuture<Void>> futures = new IdentityHashMap<>();
+        Deque<Integer> finished = new ConcurrentLinkedDeque<>(); // 栈顶是最后完成的命令下标
+        for (int i = 0; i < commands.size(); i++) {
+            int index = i;
+            Command command = commands.get(index);
+            CompletableFuture<?>[] upstream = dependencies.get(command).stream()
+                    .map(futures::get)
+                    .toArray(CompletableFuture[]::new);
+            futures.put(command, CompletableFuture.allOf(upstream).thenRunAsync(() -> {
+                run(index);
+                finished.push(index);
+            }, executor));
+        }
+        try {
+            // allOf 会等所有命令结束（成功或失败）后才返回，此时 finished 已经稳定
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            for (int index : finished) {
+                try {
+                    revert(index);
+                } catch (RuntimeException undoFailure) {
+                    cause.addSuppressed(undoFailure);
+                }
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    private void resetJournal() {
+        if (journal != null) {
+            journal.reset();
         }
     }
 
     public void undo() {
-        for (Command command : commands) {
+        for (int i = 0; i < commands.size(); i++) {
+            revert(i);
+        }
+    }
+
+    int size() {
+        return commands.size();
+    }
+
+    Command getCommand(int index) {
+        return commands.get(index);
+    }
+
+    void run(int index) {
+        if (journal != null) {
+            journal.append(ReleaseJournal.Event.START, index); // 恢复时不使用 START，不单独刷盘，随下一次 FINISH 一起落盘
+        }
+        Command command = commands.get(index);
+        long start = System.nanoTime();
+        try {
+            command.execute();
+        } finally {
+            if (metrics != null) {
+                metrics.recordExecute(command, System.nanoTime() - start);
+            }
+        }
+        if (journal != null) {
+            journal.append(ReleaseJournal.Event.FINISH, index);
+            journal.sync();
+        }
+    }
+
+    void revert(int index) {
+        Command command = commands.get(index);
+        long start = System.nanoTime();
+        try {
             command.undo();
+        } finally {
+            if (metrics != null) {
+                metrics.recordUndo(command, System.nanoTime() - start);
+            }
+        }
+        if (journal != null) {
+            journal.append(ReleaseJournal.Event.UNDO, index);
+            journal.sync();
         }
     }
 }
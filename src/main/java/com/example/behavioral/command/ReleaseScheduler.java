@@ -0,0 +1,336 @@
+package com.example.behavioral.command;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 多租户发布调度器
+ * 多条流水线共享一个工作线程池，按命令类型（资源）限制并发数和速率（令牌桶），
+ * 租户之间按权重公平排队（加权公平队列），租户内部按优先级排队；
+ * 失败流水线的回滚（undo）优先于所有普通命令，不会被饿死
+ *
+ * 同一条流水线的命令仍然按顺序执行，不同流水线的命令交错执行
+ */
+public class ReleaseScheduler implements AutoCloseable {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<String, Tenant> tenants = new HashMap<>();
+    private final Map<Class<?>, ResourceLimit> limits = new HashMap<>();
+    private final Deque<Run> rollbacks = new ArrayDeque<>(); // 待回滚的流水线，优先调度
+    private final List<Thread> workers = new ArrayList<>();
+    private double virtualTime; // 系统虚拟时间
+    private long sequence; // 提交序号，同优先级按提交顺序
+    private int activeRuns; // 尚未结束的流水线数
+    private boolean closed;
+
+    /**
+     * @param workerCount 工作线程数
+     */
+    public ReleaseScheduler(int workerCount) {
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::work, "release-worker-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * 注册租户
+     * @param tenant 租户名
+     * @param weight 权重，权重越大分到的执行机会越多
+     */
+    public void registerTenant(String tenant, int weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("权重必须大于 0");
+        }
+        lock.lock();
+        try {
+            tenants.put(tenant, new Tenant(weight));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 限制某类命令占用的资源（例如构建机、部署目标）
+     * 已有限制时原地修改，正在执行的命令仍然计入并发数，执行完照常归还
+     * @param type 命令类型
+     * @param maxConcurrent 最大并发数
+     * @param permitsPerSecond 每秒最多启动的命令数
+     * @param burst 允许的突发数
+     */
+    public void limitResource(Class<? extends Command> type, int maxConcurrent, double permitsPerSecond, int burst) {
+        lock.lock();
+        try {
+            TokenBucket bucket = new TokenBucket(permitsPerSecond, burst);
+            ResourceLimit limit = limits.get(type);
+            if (limit == null) {
+                limits.put(type, new ResourceLimit(maxConcurrent, bucket));
+            } else {
+                limit.maxConcurrent = maxConcurrent;
+                limit.bucket = bucket;
+            }
+            changed.signalAll(); // 放宽限制后等待中的命令可能可以执行
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 提交流水线
+     * @param tenant 租户名
+     * @param pipeline 流水线
+     * @param priority 优先级，数值越大越先执行
+     * @return 流水线全部执行完成时正常结束；失败时在回滚完成后以原异常结束
+     */
+    public CompletableFuture<Void> submit(String tenant, ReleasePipeline pipeline, int priority) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (pipeline.size() == 0) {
+            future.complete(null);
+            return future;
+        }
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("调度器已关闭");
+            }
+            Tenant owner = tenants.get(tenant);
+            if (owner == null) {
+                throw new IllegalArgumentException("未注册的租户: " + tenant);
+            }
+            activeRuns++;
+            enqueue(new Run(owner, pipeline, priority, sequence++, future));
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        return future;
+    }
+
+    private void work() {
+        Run run;
+        while ((run = take()) != null) {
+            Throwable error = null;
+            try {
+                if (run.undoing) {
+                    run.pipeline.revert(run.cursor);
+                } else {
+                    run.pipeline.run(run.cursor);
+                }
+            } catch (Throwable e) {
+                error = e; // 包括 Error：当作该命令失败处理，归还资源并回滚，工作线程继续运行
+            }
+            lock.lock();
+            try {
+                if (run.held != null) {
+                    run.held.inFlight--;
+                    run.held = null;
+                }
+                advance(run, error);
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 取出下一个可以执行的流水线步骤，调度器关闭且没有剩余工作时返回 null
+     */
+    private Run take() {
+        lock.lock();
+        try {
+            while (true) {
+                if (closed && activeRuns == 0) {
+                    return null;
+                }
+                long waitNanos = Long.MAX_VALUE;
+                // 1. 回滚优先
+                for (Run run : rollbacks) {
+                    long wait = acquire(run);
+                    if (wait == 0) {
+                        rollbacks.remove(run);
+                        return run;
+                    }
+                    waitNanos = Math.min(waitNanos, wait);
+                }
+                // 2. 按虚拟完成时间从小到大挑选租户，租户内按优先级挑选
+                List<Tenant> backlogged = new ArrayList<>();
+                for (Tenant tenant : tenants.values()) {
+                    if (!tenant.ready.isEmpty()) {
+                        backlogged.add(tenant);
+                    }
+                }
+                backlogged.sort((a, b) -> Double.compare(a.finishTag, b.finishTag));
+                for (Tenant tenant : backlogged) {
+                    for (Run run : tenant.ready) {
+                        long wait = acquire(run);
+                        if (wait == 0) {
+                            tenant.ready.remove(run);
+                            virtualTime = Math.max(virtualTime, tenant.finishTag);
+                            tenant.finishTag += 1.0 / tenant.weight;
+                            return run;
+                        }
+                        waitNanos = Math.min(waitNanos, wait);
+                    }
+                }
+                if (waitNanos == Long.MAX_VALUE) {
+                    changed.await();
+                } else {
+                    changed.awaitNanos(waitNanos);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 为流水线的当前命令占用资源，占用的限制记在 run 上，执行完归还给同一个限制
+     * @return 0 表示占用成功，否则返回建议等待的纳秒数（Long.MAX_VALUE 表示等待其他命令释放）
+     */
+    private long acquire(Run run) {
+        ResourceLimit limit = limits.get(run.current().getClass());
+        if (limit == null) {
+            return 0;
+        }
+        if (limit.inFlight >= limit.maxConcurrent) {
+            return Long.MAX_VALUE;
+        }
+        long wait = limit.bucket.tryAcquire();
+        if (wait == 0) {
+            limit.inFlight++;
+            run.held = limit;
+        }
+        return wait;
+    }
+
+    private void advance(Run run, Throwable error) {
+        if (run.undoing) {
+            if (error != null) {
+                run.failure.addSuppressed(error); // 撤销失败不影响继续回滚
+            }
+            run.cursor--;
+        } else if (error == null) {
+            run.cursor++;
+            if (run.cursor == run.pipeline.size()) {
+                activeRuns--;
+                run.future.complete(null);
+                return;
+            }
+            enqueue(run);
+            return;
+        } else {
+            run.failure = error;
+            run.undoing = true;
+            run.cursor--; // 只撤销已经完成的命令
+        }
+        if (run.cursor < 0) {
+            activeRuns--;
+            run.future.completeExceptionally(run.failure);
+        } else {
+            rollbacks.add(run);
+        }
+    }
+
+    private void enqueue(Run run) {
+        List<Run> ready = run.tenant.ready;
+        if (ready.isEmpty()) {
+            run.tenant.finishTag = Math.max(run.tenant.finishTag, virtualTime); // 空闲租户不能积攒额度
+        }
+        int i = 0;
+        while (i < ready.size() && (ready.get(i).priority > run.priority
+                || ready.get(i).priority == run.priority && ready.get(i).sequence < run.sequence)) {
+            i++;
+        }
+        ready.add(i, run);
+    }
+
+    /**
+     * 停止接收新流水线，等已提交的流水线全部结束后退出工作线程
+     * 等待期间被中断时不再等待（工作线程继续在后台执行完剩余工作），保留中断状态
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 租户
+     */
+    private static class Tenant {
+        private final int weight;
+        private final List<Run> ready = new ArrayList<>(); // 按优先级从高到低排列
+        private double finishTag; // 虚拟完成时间
+
+        Tenant(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * 资源限制
+     */
+    private static class ResourceLimit {
+        private int maxConcurrent;
+        private TokenBucket bucket;
+        private int inFlight;
+
+        ResourceLimit(int maxConcurrent, TokenBucket bucket) {
+            this.maxConcurrent = maxConcurrent;
+            this.bucket = bucket;
+        }
+    }
+
+    /**
+     * 一条流水线的执行进度
+     */
+    private static class Run {
+        private final Tenant tenant;
+        private final ReleasePipeline pipeline;
+        private final int priority;
+        private final long sequence;
+        private final CompletableFuture<Void> future;
+        private int cursor; // 正在执行（或撤销）的命令下标
+        private boolean undoing;
+        private Throwable failure;
+        private ResourceLimit held; // 当前命令占用的资源限制
+
+        Run(Tenant tenant, ReleasePipeline pipeline, int priority, long sequence, CompletableFuture<Void> future) {
+            this.tenant = tenant;
+            this.pipeline = pipeline;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.future = future;
+        }
+
+        Command current() {
+            return pipeline.getCommand(cursor);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.behavioral.command;
+
+/**
+ * 令牌桶限流器
+ * 以固定速率补充令牌，最多积攒 burst 个，每次获取消耗一个令牌
+ */
+public class TokenBucket {
+
+    private final double permitsPerNano; // 每纳秒补充的令牌数
+    private final double capacity; // 桶容量
+    private double tokens; // 当前令牌数
+    private long lastRefillNanos; // 上次补充时间
+
+    /**
+     * @param permitsPerSecond 每秒补充的令牌数
+     * @param burst 桶容量（允许的突发数）
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("速率和容量必须大于 0");
+        }
+        this.permitsPerNano = permitsPerSecond / 1e9;
+        this.capacity = burst;
+        this.tokens = burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * 尝试获取一个令牌
+     * @return 0 表示获取成功，否则返回还需等待的纳秒数
+     */
+    public synchronized long tryAcquire() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - tokens) / permitsPerNano));
+    }
+}
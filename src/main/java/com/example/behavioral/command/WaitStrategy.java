@@ -0,0 +1,42 @@
+package com.example.behavioral.command;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 等待策略
+ * 命令总线的生产者遇到队列满、消费者遇到队列空时如何等待
+ */
+public enum WaitStrategy {
+
+    /**
+     * 自旋：延迟最低，但会占满一个 CPU 核
+     */
+    SPIN {
+        @Override
+        void idle() {
+            Thread.onSpinWait();
+        }
+    },
+
+    /**
+     * 让出 CPU：延迟较低，空闲时仍有一定 CPU 开销
+     */
+    YIELD {
+        @Override
+        void idle() {
+            Thread.yield();
+        }
+    },
+
+    /**
+     * 短暂挂起：几乎不占 CPU，延迟最高
+     */
+    PARK {
+        @Override
+        void idle() {
+            LockSupport.parkNanos(50_000L);
+        }
+    };
+
+    abstract void idle();
+}
@@ -17,4 +17,17 @@ public class AddExpression implements Expression {
     public int interpret(Context context) {
         return left.interpret(context) + right.interpret(context); // 解释表达式
     }
+
+    @Override
+    public Expression bind(Context context) {
+        return new AddExpression(left.bind(context), right.bind(context));
+    }
+
+    Expression getLeft() {
+        return left;
+    }
+
+    Expression getRight() {
+        return right;
+    }
 }
@@ -0,0 +1,164 @@
+package com.example.behavioral.interpreter;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 批量（列式）求值器
+ * 一次对多行数据求值：每个变量一列 int[]（按槽位排列），结果写入 out[]。
+ * 加减法按列在紧凑的循环中计算（dst[i] += src[i]），JIT 可以自动向量化；
+ * 数据按块（默认 4096 行）处理，块内的中间结果留在 CPU 缓存中，大批量时可以在 ForkJoinPool 上分块并行
+ */
+public class BatchEvaluator {
+
+    private static final int CHUNK_SIZE = 4096; // 每块行数
+    private static final int PARALLEL_THRESHOLD = 4 * CHUNK_SIZE; // 小于该行数时不再拆分任务
+
+    private final Expression expression; // 已绑定的表达式
+    private final Context layout; // 变量布局
+    private final int depth; // 表达式树深度，决定需要的临时列数
+
+    /**
+     * @param expression 表达式
+     * @param layout 变量布局，列按它的槽位排列
+     */
+    public BatchEvaluator(Expression expression, Context layout) {
+        this.expression = expression.bind(layout);
+        this.layout = layout;
+        this.depth = depth(this.expression);
+    }
+
+    /**
+     * 顺序批量求值
+     * @param columns 每个变量一列，columns[slot][row]
+     * @param out 输出，out[row]
+     */
+    public void evaluate(int[][] columns, int[] out) {
+        check(columns, out);
+        evaluateRange(columns, out, 0, out.length);
+    }
+
+    /**
+     * 在 ForkJoinPool 上分块并行批量求值
+     */
+    public void evaluateParallel(int[][] columns, int[] out, ForkJoinPool pool) {
+        check(columns, out);
+        pool.invoke(new ChunkTask(columns, out, 0, out.length));
+    }
+
+    private void check(int[][] columns, int[] out) {
+        if (columns.length < layout.size()) {
+            throw new IllegalArgumentException("列数 " + columns.length + " 少于变量数 " + layout.size());
+        }
+        for (int[] column : columns) {
+            if (column.length < out.length) {
+                throw new IllegalArgumentException("列长度 " + column.length + " 少于行数 " + out.length);
+            }
+        }
+    }
+
+    private void evaluateRange(int[][] columns, int[] out, int from, int to) {
+        int[][] scratch = new int[depth][CHUNK_SIZE];
+        for (int start = from; start < to; start += CHUNK_SIZE) {
+            evaluate(expression, columns, start, Math.min(CHUNK_SIZE, to - start), out, start, scratch, 0);
+        }
+    }
+
+    /**
+     * 对 [from, from + length) 行求值，结果写入 dst[offset, offset + length)
+     */
+    private void evaluate(Expression node, int[][] columns, int from, int length,
+                          int[] dst, int offset, int[][] scratch, int level) {
+        if (node instanceof SlotVariableExpression) {
+            System.arraycopy(columns[((SlotVariableExpression) node).getSlot()], from, dst, offset, length);
+        } else if (node instanceof AddExpression) {
+            AddExpression add = (AddExpression) node;
+            evaluate(add.getLeft(), columns, from, length, dst, offset, scratch, level);
+            if (add.getRight() instanceof SlotVariableExpression) { // 右侧是变量时直接读列，省去一次复制
+                int[] src = columns[((SlotVariableExpression) add.getRight()).getSlot()];
+                for (int i = 0; i < length; i++) {
+                    dst[offset + i] += src[from + i];
+                }
+            } else {
+                int[] tmp = scratch[level];
+                evaluate(add.getRight(), columns, from, length, tmp, 0, scratch, level + 1);
+                for (int i = 0; i < length; i++) {
+                    dst[offset + i] += tmp[i];
+                }
+            }
+        } else if (node instanceof SubtractExpression) {
+            SubtractExpression sub = (SubtractExpression) node;
+            evaluate(sub.getLeft(), columns, from, length, dst, offset, scratch, level);
+            if (sub.getRight() instanceof SlotVariableExpression) {
+                int[] src = columns[((SlotVariableExpression) sub.getRight()).getSlot()];
+                for (int i = 0; i < length; i++) {
+                    dst[offset + i] -= src[from + i];
+                }
+            } else {
+                int[] tmp = scratch[level];
+                evaluate(sub.getRight(), columns, from, length, tmp, 0, scratch, level + 1);
+                for (int i = 0; i < length; i++) {
+                    dst[offset + i] -= tmp[i];
+                }
+            }
+        } else if (node instanceof ConstantExpression) {
+            Arrays.fill(dst, offset, offset + length, ((ConstantExpression) node).getValue());
+        } else if (node instanceof CachedExpression) {
+            evaluate(((CachedExpression) node).getInner(), columns, from, length, dst, offset, scratch, level);
+        } else {
+            // 不认识的节点：逐行装入上下文后解释执行
+            Context frame = new Context(layout);
+            for (int i = 0; i < length; i++) {
+                for (int slot = 0; slot < layout.size(); slot++) {
+                    frame.setVariable(slot, columns[slot][from + i]);
+                }
+                dst[offset + i] = node.interpret(frame);
+            }
+        }
+    }
+
+    private static int depth(Expression node) {
+        if (node instanceof AddExpression) {
+            AddExpression add = (AddExpression) node;
+            return 1 + Math.max(depth(add.getLeft()), depth(add.getRight()));
+        }
+        if (node instanceof SubtractExpression) {
+            SubtractExpression sub = (SubtractExpression) node;
+            return 1 + Math.max(depth(sub.getLeft()), depth(sub.getRight()));
+        }
+        if (node instanceof CachedExpression) {
+            return depth(((CachedExpression) node).getInner());
+        }
+        return 0;
+    }
+
+    /**
+     * 分块并行任务
+     */
+    private class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[][] columns;
+        private final int[] out;
+        private final int from;
+        private final int to;
+
+        ChunkTask(int[][] columns, int[] out, int from, int to) {
+            this.columns = columns;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                evaluateRange(columns, out, from, to);
+                return;
+            }
+            int mid = from + (to - from) / 2 / CHUNK_SIZE * CHUNK_SIZE; // 按块边界拆分
+            invokeAll(new ChunkTask(columns, out, from, mid), new ChunkTask(columns, out, mid, to));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.behavioral.interpreter;
+
+/**
+ * 缓存表达式(公共子表达式)
+ * 由 {@link ExpressionOptimizer} 为被多处引用的子表达式生成，
+ * 在同一个上下文中、变量未改变之前，子表达式只计算一次，结果缓存在上下文的第 index 个缓存槽中。
+ * 槽位编号只在同一个优化器（编号空间 scope）内唯一
+ */
+public class CachedExpression implements Expression {
+
+    private final ExpressionOptimizer.CacheScope scope; // 缓存槽的编号空间
+    private final int index; // 缓存槽
+    private final Expression inner; // 被缓存的子表达式
+
+    CachedExpression(ExpressionOptimizer.CacheScope scope, int index, Expression inner) {
+        this.scope = scope;
+        this.index = index;
+        this.inner = inner;
+    }
+
+    @Override
+    public int interpret(Context context) {
+        if (context.isCached(scope, index)) {
+            return context.getCached(index);
+        }
+        int value = inner.interpret(context);
+        context.putCached(scope, index, value);
+        return value;
+    }
+
+    @Override
+    public Expression bind(Context context) {
+        return new CachedExpression(scope, index, inner.bind(context)); // 缓存槽不变，绑定后仍共享同一个结果
+    }
+
+    ExpressionOptimizer.CacheScope getScope() {
+        return scope;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    Expression getInner() {
+        return inner;
+    }
+}
@@ -1,5 +1,8 @@
 package com.example.behavioral.interpreter;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 /**
  * 客户端
  */
@@ -22,6 +25,55 @@ public class Client {
         // 表达式 3: a + (b - c)
         expression = new AddExpression(new VariableExpression("a"), new SubtractExpression(new VariableExpression("b"), new VariableExpression("c")));
         System.out.println(expression.interpret(context)); // 解释表达式
+        System.out.println("=====================");
+        // 编译执行：结果与解释执行相同
+        Expression compiled = ExpressionCompiler.compile(expression);
+        System.out.println(compiled.interpret(context));
+        System.out.println("=====================");
+        // 绑定槽位：变量名在绑定时解析为槽位，求值时按槽位读取
+        Expression bound = expression.bind(context);
+        System.out.println(bound.interpret(context));
+        Context frame = new Context(context); // 共享变量布局的新帧
+        frame.setVariable(context.slotOf("a"), 1);
+        frame.setVariable(context.slotOf("b"), 2);
+        frame.setVariable(context.slotOf("c"), 3);
+        System.out.println(bound.interpret(frame));
+        System.out.println("=====================");
+        // 批量求值：每个变量一列（按槽位排列），一次计算多行
+        int[][] columns = {
+                {10, 1, 100}, // a
+                {20, 2, 200}, // b
+                {5, 1, 50}    // c
+        };
+        int[] results = new int[3];
+        expression.interpretBatch(context, columns, results);
+        System.out.println(Arrays.toString(results));
+        System.out.println("=====================");
+        // 优化：(a + b) - (a + b) + (c + 0) 化简为 c
+        Expression repeated = new AddExpression(
+                new SubtractExpression(
+                        new AddExpression(new VariableExpression("a"), new VariableExpression("b")),
+                        new AddExpression(new VariableExpression("a"), new VariableExpression("b"))),
+                new AddExpression(new VariableExpression("c"), new ConstantExpression(0)));
+        Expression optimized = new ExpressionOptimizer().optimize(repeated);
+        System.out.println(optimized.getClass().getSimpleName() + " = " + optimized.interpret(context));
+        System.out.println("=====================");
+        // 解析公式文本，重复的公式直接命中缓存
+        ExpressionCache cache = new ExpressionCache(1024);
+        System.out.println(cache.get("a + (b - c)").interpret(context));
+        System.out.println(cache.get("a + (b - c)").interpret(context));
+        System.out.println("命中: " + cache.getHitCount() + "，未命中: " + cache.getMissCount());
+        System.out.println("=====================");
+        // 增量求值：变量变化时只重新计算受影响的表达式，并推送变化
+        ExpressionEngine engine = new ExpressionEngine(context);
+        engine.register(cache.get("a + b"), (e, oldValue, newValue) -> System.out.println("a + b: " + oldValue + " -> " + newValue));
+        engine.register(cache.get("c - 1"), (e, oldValue, newValue) -> System.out.println("c - 1: " + oldValue + " -> " + newValue));
+        context.setVariable("a", 15); // 只触发 a + b
+        System.out.println("=====================");
+        // 编码为栈式虚拟机程序，从缓冲区读取后直接执行
+        ByteBuffer encoded = StackProgram.encode(cache.get("a + (b - c) - 100000000"));
+        StackProgram program = StackProgram.read(encoded).bind(context);
+        System.out.println(program.getNames() + " = " + program.interpret(context));
     }
 
 }
@@ -0,0 +1,22 @@
+package com.example.behavioral.interpreter;
+
+/**
+ * 终结符表达式(常量表达式)
+ */
+public class ConstantExpression implements Expression {
+
+    private final int value; // 常量值
+
+    public ConstantExpression(int value) {
+        this.value = value;
+    }
+
+    @Override
+    public int interpret(Context context) {
+        return value;
+    }
+
+    int getValue() {
+        return value;
+    }
+}
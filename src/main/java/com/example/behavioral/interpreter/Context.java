@@ -1,21 +1,142 @@
 package com.example.behavioral.interpreter;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.IntConsumer;
 
 /**
  * 上下文
+ * 变量名在第一次设置（或声明）时分配固定的槽位，变量值按槽位存放在 int 数组中；
+ * 绑定后的表达式（见 {@link Expression#bind(Context)}）按槽位直接读取，不再查哈希表、不再拆箱
  */
 public class Context {
 
-    private Map<String, Integer> variables = new HashMap<>(); // 变量表
+    private Map<String, Integer> slots; // 变量名 -> 槽位
+    private boolean slotsShared; // slots 与其他帧共享，声明新变量前先复制
+    private int[] values; // 变量值，按槽位存储
+    private long version = 1; // 变量版本，每次设置变量时递增
+    private long[] cacheVersions = new long[0]; // 公共子表达式缓存对应的变量版本
+    private int[] cacheValues = new int[0]; // 公共子表达式缓存的值
+    private Object[] cacheScopes = new Object[0]; // 缓存槽当前属于哪个优化器的编号空间
+    private IntConsumer listener; // 变量变化监听（增量求值引擎使用），参数为槽位
+
+    public Context() {
+        this.slots = new HashMap<>();
+        this.values = new int[8];
+    }
+
+    /**
+     * 创建一个与 layout 共享变量布局的新帧，变量值初始为 0
+     * 绑定到 layout 的表达式可以直接在新帧上求值。布局按写时复制共享：
+     * 之后在新帧或 layout 上声明的变量只属于声明它的上下文，不影响其他帧
+     * @param layout 提供变量布局的上下文
+     */
+    public Context(Context layout) {
+        this.slots = layout.slots;
+        this.slotsShared = true;
+        layout.slotsShared = true;
+        this.values = new int[Math.max(1, layout.slots.size())];
+    }
 
     public void setVariable(String name, int value) { // 设置变量
-        variables.put(name, value);
+        setVariable(declare(name), value);
     }
 
     public int getVariable(String name) { // 获取变量
-        return variables.get(name);
+        return values[slotOf(name)];
+    }
+
+    /**
+     * 声明变量，返回它的槽位（已声明时返回原槽位）
+     */
+    public int declare(String name) {
+        Integer slot = slots.get(name);
+        if (slot == null) {
+            if (slotsShared) {
+                slots = new HashMap<>(slots);
+                slotsShared = false;
+            }
+            slot = slots.size();
+            slots.put(name, slot);
+            ensureCapacity(slot);
+        }
+        return slot;
+    }
+
+    /**
+     * 查找变量的槽位
+     * @throws IllegalArgumentException 变量未定义
+     */
+    public int slotOf(String name) {
+        Integer slot = slots.get(name);
+        if (slot == null) {
+            throw new IllegalArgumentException("未定义的变量: " + name);
+        }
+        return slot;
+    }
+
+    public int getVariable(int slot) { // 按槽位获取变量
+        return values[slot];
+    }
+
+    /**
+     * 按槽位设置变量
+     * @throws IllegalArgumentException 槽位没有声明过
+     */
+    public void setVariable(int slot, int value) {
+        if (slot < 0 || slot >= slots.size()) {
+            throw new IllegalArgumentException("未声明的槽位: " + slot);
+        }
+        int oldValue = values[slot];
+        values[slot] = value;
+        version++; // 使公共子表达式缓存失效
+        if (listener != null && oldValue != value) {
+            listener.accept(slot);
+        }
+    }
+
+    void setListener(IntConsumer listener) {
+        if (this.listener != null) {
+            throw new IllegalStateException("上下文已被其他增量求值引擎监听");
+        }
+        this.listener = listener;
+    }
+
+    boolean isCached(ExpressionOptimizer.CacheScope scope, int index) {
+        return index < cacheVersions.length && cacheVersions[index] == version && cacheScopes[index] == scope;
+    }
+
+    int getCached(int index) {
+        return cacheValues[index];
+    }
+
+    /**
+     * 缓存公共子表达式的值，缓存数组按该编号空间的槽位数分配
+     */
+    void putCached(ExpressionOptimizer.CacheScope scope, int index, int value) {
+        if (index >= cacheVersions.length) {
+            int length = Math.max(index + 1, scope.size());
+            cacheVersions = Arrays.copyOf(cacheVersions, length);
+            cacheValues = Arrays.copyOf(cacheValues, length);
+            cacheScopes = Arrays.copyOf(cacheScopes, length);
+        }
+        cacheVersions[index] = version;
+        cacheValues[index] = value;
+        cacheScopes[index] = scope;
+    }
+
+    /**
+     * 已声明的变量个数
+     */
+    public int size() {
+        return slots.size();
+    }
+
+    private void ensureCapacity(int slot) {
+        if (slot >= values.length) {
+            values = Arrays.copyOf(values, Math.max(slot + 1, values.length * 2));
+        }
     }
 
 }
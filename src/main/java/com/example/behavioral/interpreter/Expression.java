@@ -7,4 +7,23 @@ public interface Expression {
 
     int interpret(Context context); // 解释表达式
 
+    /**
+     * 绑定：把表达式中的变量名解析为 context 中的槽位，返回绑定后的表达式
+     * 绑定后的表达式可以在 context 及与它共享布局的上下文上求值
+     * @throws IllegalArgumentException 表达式引用了未定义的变量
+     */
+    default Expression bind(Context context) {
+        return this;
+    }
+
+    /**
+     * 批量（列式）求值
+     * @param layout 变量布局，列按它的槽位排列
+     * @param columns 每个变量一列，columns[slot][row]
+     * @param out 输出，out[row]
+     */
+    default void interpretBatch(Context layout, int[][] columns, int[] out) {
+        new BatchEvaluator(this, layout).evaluate(columns, out);
+    }
+
 }
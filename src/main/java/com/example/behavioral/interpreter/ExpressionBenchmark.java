@@ -0,0 +1,73 @@
+package com.example.behavioral.interpreter;
+
+/**
+ * 表达式性能对比：树遍历解释 vs 编译执行
+ * 简单的预热 + 计时对比，结果只作数量级参考（精确测量请使用 JMH）
+ */
+public class ExpressionBenchmark {
+
+    private static final int ITERATIONS = 20_000_000;
+    private static final int LARGE_DEPTH = 12; // 大树的高度：4095 个节点，超过单个方法 8000 字节的预算，编译时需要拆分
+    private static final int LARGE_ITERATIONS = 20_000;
+
+    public static void main(String[] args) {
+        Context context = new Context();
+        context.setVariable("a", 10);
+        context.setVariable("b", 20);
+        context.setVariable("c", 30);
+        context.setVariable("d", 40);
+
+        // (a + (b - c)) - (d - (a + b))
+        Expression tree = new SubtractExpression(
+                new AddExpression(new VariableExpression("a"),
+                        new SubtractExpression(new VariableExpression("b"), new VariableExpression("c"))),
+                new SubtractExpression(new VariableExpression("d"),
+                        new AddExpression(new VariableExpression("a"), new VariableExpression("b"))));
+        Expression compiled = ExpressionCompiler.compile(tree);
+        Expression bound = tree.bind(context);
+        Expression boundCompiled = ExpressionCompiler.compile(bound);
+
+        for (int round = 0; round < 5; round++) { // 前几轮为预热
+            System.out.printf("round %d: tree %.2f ns/op, compiled %.2f ns/op, bound %.2f ns/op, bound+compiled %.2f ns/op%n",
+                    round, measure(tree, context), measure(compiled, context),
+                    measure(bound, context), measure(boundCompiled, context));
+        }
+
+        // 大树：拆分后每个生成的方法都能被 JIT 编译，编译执行应快于树遍历
+        Expression large = balanced(LARGE_DEPTH, new int[1]).bind(context);
+        Expression largeCompiled = ExpressionCompiler.compile(large);
+        for (int round = 0; round < 5; round++) {
+            System.out.printf("round %d: large bound %.2f ns/op, large bound+compiled %.2f ns/op%n",
+                    round, measure(large, context, LARGE_ITERATIONS), measure(largeCompiled, context, LARGE_ITERATIONS));
+        }
+    }
+
+    /**
+     * 高度为 depth 的满二叉树，加减交替，叶子轮流取 a、b、c、d
+     */
+    private static Expression balanced(int depth, int[] leaf) {
+        if (depth == 1) {
+            return new VariableExpression(String.valueOf((char) ('a' + leaf[0]++ % 4)));
+        }
+        Expression left = balanced(depth - 1, leaf);
+        Expression right = balanced(depth - 1, leaf);
+        return depth % 2 == 0 ? new AddExpression(left, right) : new SubtractExpression(left, right);
+    }
+
+    private static double measure(Expression expression, Context context) {
+        return measure(expression, context, ITERATIONS);
+    }
+
+    private static double measure(Expression expression, Context context, int iterations) {
+        long start = System.nanoTime();
+        int sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            sink += expression.interpret(context);
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            System.out.println(); // 防止循环被优化掉
+        }
+        return (double) elapsed / iterations;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.behavioral.interpreter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 表达式缓存
+ * 以公式文本为键缓存解析并优化后的表达式，重复出现的公式跳过解析和优化。
+ * 有界 LRU：按键的哈希分成多个段，每个段是一个按访问顺序排列的 LinkedHashMap，独立加锁、独立淘汰，
+ * 减少并发访问时的锁竞争；解析和优化在锁外进行
+ */
+public class ExpressionCache {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maximumSize 最多缓存的公式数
+     */
+    public ExpressionCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("缓存容量必须大于 0");
+        }
+        int count = Math.min(MAX_SEGMENTS, Integer.highestOneBit(Math.max(1, maximumSize / 16))); // 段数为 2 的幂，每段至少 16 个
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(maximumSize / count + (i < maximumSize % count ? 1 : 0));
+        }
+    }
+
+    /**
+     * 获取公式对应的表达式，未命中时解析并优化
+     * @throws IllegalArgumentException 语法错误
+     */
+    public Expression get(String source) {
+        Segment segment = segmentFor(source);
+        Expression expression;
+        synchronized (segment) {
+            expression = segment.get(source);
+        }
+        if (expression != null) {
+            hits.increment();
+            return expression;
+        }
+        misses.increment();
+        Expression parsed = new ExpressionOptimizer().optimize(ExpressionParser.parse(source));
+        synchronized (segment) {
+            expression = segment.putIfAbsent(source, parsed); // 其他线程可能已经放入
+        }
+        return expression != null ? expression : parsed;
+    }
+
+    private Segment segmentFor(String source) {
+        int h = source.hashCode();
+        h ^= h >>> 16;
+        return segments[h & (segments.length - 1)];
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * 命中率，没有访问时为 0
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 段：按访问顺序排列，超过容量时淘汰最久未使用的公式
+     */
+    private class Segment extends LinkedHashMap<String, Expression> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Expression> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
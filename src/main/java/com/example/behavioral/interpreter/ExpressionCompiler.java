@@ -0,0 +1,218 @@
+package com.example.behavioral.interpreter;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 表达式编译器
+ * 把表达式树编译成一个隐藏类（hidden class），interpret 方法是一段没有虚调用的直线代码，
+ * 例如 a + (b - c) 编译为：
+ * <pre>
+ * return context.getVariable("a") + (context.getVariable("b") - context.getVariable("c"));
+ * </pre>
+ * 已绑定槽位的表达式（见 {@link Expression#bind(Context)}）编译为按槽位读取：context.getVariable(0)。
+ * JIT 可以把它内联成连续的整数运算。编译结果同样实现 {@link Expression}，可以直接替换原表达式树；
+ * 不认识的表达式节点保留原对象，在生成的代码中直接调用它的 interpret 方法。
+ *
+ * HotSpot 不会即时编译超过 8000 字节字节码的方法（HugeMethodLimit），这样的方法永远解释执行，
+ * 比树遍历还慢。编译前按每个节点生成的字节码字节数（取上界）自底向上累加，
+ * 子树超出预算时把较大的子树单独编译成一个隐藏类，作为普通节点嵌入，保证每个生成的方法都能被 JIT 编译
+ */
+public final class ExpressionCompiler {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final String CLASS_NAME = ExpressionCompiler.class.getPackageName().replace('.', '/') + "/CompiledExpression";
+    private static final String EXPRESSION = Type.getInternalName(Expression.class);
+    private static final String CONTEXT = Type.getInternalName(Context.class);
+    private static final String INTERPRET_DESC = "(L" + CONTEXT + ";)I";
+    private static final int MAX_METHOD_BYTES = 8000 - 1; // HotSpot 的 HugeMethodLimit，减去 IRETURN
+    // 各类节点生成的字节码字节数上界（ldc 按 ldc_w、局部变量按 wide 指令计算）
+    private static final int ARITHMETIC_BYTES = 1; // iadd / isub
+    private static final int VARIABLE_BYTES = 1 + 3 + 3; // aload_1, ldc_w, invokevirtual
+    private static final int CONSTANT_BYTES = 3; // ldc_w
+    private static final int CACHE_STORE_BYTES = 1 + 4; // dup, wide istore
+    private static final int OPAQUE_BYTES = 1 + 3 + 3 + 1 + 1 + 5; // aload_0, getfield, ldc_w, aaload, aload_1, invokeinterface
+
+    private ExpressionCompiler() {
+    }
+
+    /**
+     * 编译表达式
+     * @param expression 表达式树
+     * @return 行为相同的编译后表达式
+     */
+    public static Expression compile(Expression expression) {
+        return define(split(expression, new HashMap<>(), new int[1]));
+    }
+
+    /**
+     * 自底向上估算字节码大小，超出预算时把较大的子树单独编译
+     * 公共子表达式按第一次出现计算（重复引用实际只是一条 iload，这里仍按完整大小估算，宁大勿小），
+     * 同一个缓存槽只处理一次，表达式图不会按树展开
+     * @param done 已处理的公共子表达式 -> {处理后的节点, 字节数}
+     * @param bytes 输出：处理后的节点生成的字节码字节数，不超过 MAX_METHOD_BYTES
+     * @return 处理后的节点
+     */
+    private static Expression split(Expression expression, Map<CacheKey, Object[]> done, int[] bytes) {
+        if (expression instanceof AddExpression || expression instanceof SubtractExpression) {
+            boolean add = expression instanceof AddExpression;
+            Expression left = add ? ((AddExpression) expression).getLeft() : ((SubtractExpression) expression).getLeft();
+            Expression right = add ? ((AddExpression) expression).getRight() : ((SubtractExpression) expression).getRight();
+            Expression newLeft = split(left, done, bytes);
+            int leftBytes = bytes[0];
+            Expression newRight = split(right, done, bytes);
+            int rightBytes = bytes[0];
+            while (ARITHMETIC_BYTES + leftBytes + rightBytes > MAX_METHOD_BYTES) {
+                if (leftBytes >= rightBytes) {
+                    newLeft = define(newLeft);
+                    leftBytes = OPAQUE_BYTES;
+                } else {
+                    newRight = define(newRight);
+                    rightBytes = OPAQUE_BYTES;
+                }
+            }
+            bytes[0] = ARITHMETIC_BYTES + leftBytes + rightBytes;
+            if (newLeft == left && newRight == right) {
+                return expression;
+            }
+            return add ? new AddExpression(newLeft, newRight) : new SubtractExpression(newLeft, newRight);
+        }
+        if (expression instanceof CachedExpression) {
+            CachedExpression cached = (CachedExpression) expression;
+            CacheKey key = new CacheKey(cached.getScope(), cached.getIndex());
+            Object[] result = done.get(key);
+            if (result == null) {
+                Expression inner = split(cached.getInner(), done, bytes);
+                if (bytes[0] + CACHE_STORE_BYTES > MAX_METHOD_BYTES) {
+                    inner = define(inner);
+                    bytes[0] = OPAQUE_BYTES;
+                }
+                Expression node = inner == cached.getInner() ? cached : new CachedExpression(cached.getScope(), cached.getIndex(), inner);
+                result = new Object[] {node, bytes[0] + CACHE_STORE_BYTES};
+                done.put(key, result);
+            }
+            bytes[0] = (int) result[1];
+            return (Expression) result[0];
+        }
+        if (expression instanceof VariableExpression || expression instanceof SlotVariableExpression) {
+            bytes[0] = VARIABLE_BYTES;
+        } else if (expression instanceof ConstantExpression) {
+            bytes[0] = CONSTANT_BYTES;
+        } else {
+            bytes[0] = OPAQUE_BYTES;
+        }
+        return expression;
+    }
+
+    /**
+     * 把表达式生成为一个隐藏类并实例化
+     */
+    private static Expression define(Expression expression) {
+        List<Expression> opaque = new ArrayList<>();
+        byte[] bytes = generate(expression, opaque);
+        try {
+            MethodHandles.Lookup hidden = LOOKUP.defineHiddenClass(bytes, true);
+            MethodHandle constructor = hidden.findConstructor(hidden.lookupClass(),
+                    MethodType.methodType(void.class, Expression[].class));
+            return (Expression) constructor.invoke(opaque.toArray(new Expression[0]));
+        } catch (Throwable e) {
+            throw new IllegalStateException("表达式编译失败", e);
+        }
+    }
+
+    private static byte[] generate(Expression expression, List<Expression> opaque) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V11, Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, CLASS_NAME, null,
+                "java/lang/Object", new String[]{EXPRESSION});
+        cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "opaque", "[L" + EXPRESSION + ";", null, null).visitEnd();
+
+        // 构造方法：保存不认识的节点
+        MethodVisitor init = cw.visitMethod(0, "<init>", "([L" + EXPRESSION + ";)V", null, null);
+        init.visitCode();
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitVarInsn(Opcodes.ALOAD, 1);
+        init.visitFieldInsn(Opcodes.PUTFIELD, CLASS_NAME, "opaque", "[L" + EXPRESSION + ";");
+        init.visitInsn(Opcodes.RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        // interpret 方法：后序遍历表达式树，生成栈式指令
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "interpret", INTERPRET_DESC, null, null);
+        mv.visitCode();
+        emit(mv, expression, opaque, new HashMap<>());
+        mv.visitInsn(Opcodes.IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * 公共子表达式的缓存槽，槽位编号只在同一个编号空间内唯一
+     */
+    private record CacheKey(Object scope, int index) {
+    }
+
+    /**
+     * @param locals 公共子表达式的缓存槽 -> 保存其结果的局部变量
+     */
+    private static void emit(MethodVisitor mv, Expression expression, List<Expression> opaque, Map<CacheKey, Integer> locals) {
+        if (expression instanceof AddExpression) {
+            AddExpression add = (AddExpression) expression;
+            emit(mv, add.getLeft(), opaque, locals);
+            emit(mv, add.getRight(), opaque, locals);
+            mv.visitInsn(Opcodes.IADD);
+        } else if (expression instanceof SubtractExpression) {
+            SubtractExpression sub = (SubtractExpression) expression;
+            emit(mv, sub.getLeft(), opaque, locals);
+            emit(mv, sub.getRight(), opaque, locals);
+            mv.visitInsn(Opcodes.ISUB);
+        } else if (expression instanceof VariableExpression) {
+            mv.visitVarInsn(Opcodes.ALOAD, 1);
+            mv.visitLdcInsn(((VariableExpression) expression).getName());
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, CONTEXT, "getVariable", "(Ljava/lang/String;)I", false);
+        } else if (expression instanceof SlotVariableExpression) {
+            mv.visitVarInsn(Opcodes.ALOAD, 1);
+            mv.visitLdcInsn(((SlotVariableExpression) expression).getSlot());
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, CONTEXT, "getVariable", "(I)I", false);
+        } else if (expression instanceof ConstantExpression) {
+            mv.visitLdcInsn(((ConstantExpression) expression).getValue());
+        } else if (expression instanceof CachedExpression) {
+            // 公共子表达式：第一次出现时计算并存入局部变量，之后直接读取
+            CachedExpression cached = (CachedExpression) expression;
+            CacheKey key = new CacheKey(cached.getScope(), cached.getIndex());
+            Integer local = locals.get(key);
+            if (local != null) {
+                mv.visitVarInsn(Opcodes.ILOAD, local);
+            } else {
+                emit(mv, cached.getInner(), opaque, locals);
+                local = 2 + locals.size(); // 0 是 this，1 是 context
+                mv.visitInsn(Opcodes.DUP);
+                mv.visitVarInsn(Opcodes.ISTORE, local);
+                locals.put(key, local);
+            }
+        } else {
+            // 不认识的节点：this.opaque[i].interpret(context)
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitFieldInsn(Opcodes.GETFIELD, CLASS_NAME, "opaque", "[L" + EXPRESSION + ";");
+            mv.visitLdcInsn(opaque.size());
+            mv.visitInsn(Opcodes.AALOAD);
+            mv.visitVarInsn(Opcodes.ALOAD, 1);
+            mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, EXPRESSION, "interpret", INTERPRET_DESC, true);
+            opaque.add(expression);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.behavioral.interpreter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * 增量求值引擎（类似电子表格）
+ * 在一个共享的上下文上注册大量表达式，引擎记录每个子表达式读取了哪些变量，并缓存每个子表达式的值。
+ * 调用 {@link Context#setVariable} 后，只按拓扑顺序（节点高度从低到高）重新计算受影响的子表达式，
+ * 并把结果发生变化的表达式推送给监听器；更新一个变量的代价与受影响的节点数成正比，而不是与表达式总数成正比
+ *
+ * 引用同一个子表达式对象的多个表达式共享同一个节点，配合 {@link ExpressionOptimizer} 的节点驻留效果更好。
+ * 引擎不是线程安全的，应与上下文在同一个线程中使用
+ */
+public class ExpressionEngine {
+
+    private final Context context;
+    private final Map<Expression, Node> nodes = new IdentityHashMap<>(); // 表达式 -> 节点
+    private final Map<Integer, Node> variables = new HashMap<>(); // 槽位 -> 变量节点
+    private final List<Node> opaqueNodes = new ArrayList<>(); // 不认识的节点，任何变量变化都要重新计算
+    private final PriorityQueue<Node> dirty = new PriorityQueue<>((a, b) -> Integer.compare(a.height, b.height));
+
+    public ExpressionEngine(Context context) {
+        this.context = context;
+        context.setListener(this::onVariableChanged);
+    }
+
+    /**
+     * 注册表达式
+     * @param expression 表达式
+     * @param listener 结果变化时的回调，可以为 null
+     * @return 当前结果
+     * @throws IllegalArgumentException 表达式引用了未定义的变量
+     */
+    public int register(Expression expression, ExpressionListener listener) {
+        Node node = build(expression);
+        if (listener != null) {
+            node.listeners.add(new Registration(expression, listener));
+        }
+        return node.value;
+    }
+
+    /**
+     * 已注册表达式的当前结果（直接返回缓存值）
+     */
+    public int getValue(Expression expression) {
+        Node node = nodes.get(expression);
+        if (node == null) {
+            throw new IllegalArgumentException("表达式未注册");
+        }
+        return node.value;
+    }
+
+    private Node build(Expression expression) {
+        Node node = nodes.get(expression);
+        if (node != null) {
+            return node;
+        }
+        if (expression instanceof AddExpression) {
+            AddExpression add = (AddExpression) expression;
+            node = new Node(Node.ADD, build(add.getLeft()), build(add.getRight()), 0, expression);
+        } else if (expression instanceof SubtractExpression) {
+            SubtractExpression sub = (SubtractExpression) expression;
+            node = new Node(Node.SUBTRACT, build(sub.getLeft()), build(sub.getRight()), 0, expression);
+        } else if (expression instanceof CachedExpression) {
+            node = build(((CachedExpression) expression).getInner());
+        } else if (expression instanceof ConstantExpression) {
+            node = new Node(Node.CONSTANT, null, null, ((ConstantExpression) expression).getValue(), expression);
+        } else if (expression instanceof VariableExpression) {
+            node = variable(context.slotOf(((VariableExpression) expression).getName()));
+        } else if (expression instanceof SlotVariableExpression) {
+            node = variable(((SlotVariableExpression) expression).getSlot());
+        } else {
+            node = new Node(Node.OPAQUE, null, null, 0, expression);
+            opaqueNodes.add(node);
+        }
+        node.value = compute(node);
+        nodes.put(expression, node);
+        return node;
+    }
+
+    private Node variable(int slot) {
+        return variables.computeIfAbsent(slot, s -> new Node(Node.VARIABLE, null, null, s, null));
+    }
+
+    private int compute(Node node) {
+        switch (node.kind) {
+            case Node.ADD:
+                return node.left.value + node.right.value;
+            case Node.SUBTRACT:
+                return node.left.value - node.right.value;
+            case Node.VARIABLE:
+                return context.getVariable(node.operand);
+            case Node.CONSTANT:
+                return node.operand;
+            default:
+                return node.expression.interpret(context);
+        }
+    }
+
+    /**
+     * 变量变化：从变量节点出发，按高度从低到高重新计算，值未变化的节点不再向上传播
+     */
+    private void onVariableChanged(int slot) {
+        Node variable = variables.get(slot);
+        if (variable != null) {
+            markDirty(variable);
+        }
+        for (Node node : opaqueNodes) {
+            markDirty(node);
+        }
+        Node node;
+        while ((node = dirty.poll()) != null) {
+            node.queued = false;
+            int oldValue = node.value;
+            int newValue = compute(node);
+            if (newValue == oldValue) {
+                continue;
+            }
+            node.value = newValue;
+            for (Node parent : node.parents) {
+                markDirty(parent);
+            }
+            for (Registration registration : node.listeners) {
+                registration.listener.onChange(registration.expression, oldValue, newValue);
+            }
+        }
+    }
+
+    private void markDirty(Node node) {
+        if (!node.queued) {
+            node.queued = true;
+            dirty.add(node);
+        }
+    }
+
+    /**
+     * 计算节点
+     */
+    private static class Node {
+        static final int ADD = 0;
+        static final int SUBTRACT = 1;
+        static final int VARIABLE = 2;
+        static final int CONSTANT = 3;
+        static final int OPAQUE = 4;
+
+        final int kind;
+        final Node left;
+        final Node right;
+        final int operand; // 变量槽位或常量值
+        final Expression expression; // 原表达式（不认识的节点求值时使用）
+        final int height; // 叶子为 0，父节点比子节点高
+        final List<Node> parents = new ArrayList<>(1);
+        final List<Registration> listeners = new ArrayList<>(0);
+        int value; // 缓存的值
+        boolean queued; // 是否已在待计算队列中
+
+        Node(int kind, Node left, Node right, int operand, Expression expression) {
+            this.kind = kind;
+            this.left = left;
+            this.right = right;
+            this.operand = operand;
+            this.expression = expression;
+            if (left != null) {
+                this.height = 1 + Math.max(left.height, right.height);
+                left.parents.add(this);
+                right.parents.add(this);
+            } else {
+                this.height = 0;
+            }
+        }
+    }
+
+    /**
+     * 注册的表达式及其监听器
+     */
+    private static class Registration {
+        final Expression expression;
+        final ExpressionListener listener;
+
+        Registration(Expression expression, ExpressionListener listener) {
+            this.expression = expression;
+            this.listener = listener;
+        }
+    }
+}
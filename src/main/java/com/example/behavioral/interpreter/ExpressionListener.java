@@ -0,0 +1,10 @@
+package com.example.behavioral.interpreter;
+
+/**
+ * 表达式结果变化监听器
+ */
+public interface ExpressionListener {
+
+    void onChange(Expression expression, int oldValue, int newValue); // 结果发生变化
+
+}
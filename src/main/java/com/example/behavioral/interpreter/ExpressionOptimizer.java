@@ -0,0 +1,195 @@
+package com.example.behavioral.interpreter;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * 表达式优化器
+ * <ul>
+ *     <li>常量折叠：1 + 2 → 3</li>
+ *     <li>代数化简：x - x → 0，x + 0 → x，0 + x → x，x - 0 → x，(x + 1) + 2 → x + 3</li>
+ *     <li>节点驻留（hash-consing）：结构相同的节点只保留一个实例，同一个优化器处理的多个表达式之间也共享</li>
+ *     <li>公共子表达式消除：被多处引用的子表达式包装为 {@link CachedExpression}，每次求值只计算一次</li>
+ * </ul>
+ * 优化器不是线程安全的；优化后的表达式与原表达式一样可以并发求值（每个线程使用自己的上下文）
+ */
+public class ExpressionOptimizer {
+
+    private final CacheScope scope = new CacheScope(); // 本优化器的缓存槽从 0 开始编号
+
+    private final Map<Key, Expression> interned = new HashMap<>(); // 结构 -> 唯一实例
+    private final Map<Expression, CachedExpression> cached = new IdentityHashMap<>(); // 公共子表达式 -> 缓存包装
+
+    /**
+     * 结构键：子节点已经驻留，按引用比较即可
+     */
+    private record Key(Class<?> type, Object first, Object second) {
+    }
+
+    /**
+     * 优化表达式
+     * @param expression 表达式
+     * @return 优化后的表达式
+     */
+    public Expression optimize(Expression expression) {
+        Expression simplified = simplify(expression);
+        Map<Expression, Integer> references = new IdentityHashMap<>();
+        countReferences(simplified, references);
+        return share(simplified, references);
+    }
+
+    /**
+     * 自底向上化简并驻留
+     */
+    private Expression simplify(Expression node) {
+        if (node instanceof AddExpression) {
+            AddExpression add = (AddExpression) node;
+            Expression left = simplify(add.getLeft());
+            Expression right = simplify(add.getRight());
+            if (left instanceof ConstantExpression && right instanceof ConstantExpression) {
+                return constant(value(left) + value(right));
+            }
+            if (isZero(left)) {
+                return right;
+            }
+            if (isZero(right)) {
+                return left;
+            }
+            if (right instanceof ConstantExpression && left instanceof AddExpression
+                    && ((AddExpression) left).getRight() instanceof ConstantExpression) {
+                // (x + c1) + c2 → x + (c1 + c2)
+                AddExpression inner = (AddExpression) left;
+                int sum = value(inner.getRight()) + value(right);
+                return sum == 0 ? inner.getLeft() : intern(new Key(AddExpression.class, inner.getLeft(), constant(sum)));
+            }
+            return intern(new Key(AddExpression.class, left, right));
+        }
+        if (node instanceof SubtractExpression) {
+            SubtractExpression sub = (SubtractExpression) node;
+            Expression left = simplify(sub.getLeft());
+            Expression right = simplify(sub.getRight());
+            if (left instanceof ConstantExpression && right instanceof ConstantExpression) {
+                return constant(value(left) - value(right));
+            }
+            if (left == right) {
+                return constant(0); // 节点已驻留，引用相同即结构相同
+            }
+            if (isZero(right)) {
+                return left;
+            }
+            return intern(new Key(SubtractExpression.class, left, right));
+        }
+        if (node instanceof CachedExpression) {
+            return simplify(((CachedExpression) node).getInner());
+        }
+        if (node instanceof ConstantExpression) {
+            return constant(value(node));
+        }
+        if (node instanceof VariableExpression) {
+            return intern(new Key(VariableExpression.class, ((VariableExpression) node).getName(), null));
+        }
+        if (node instanceof SlotVariableExpression) {
+            SlotVariableExpression slot = (SlotVariableExpression) node;
+            return intern(new Key(SlotVariableExpression.class, slot.getName(), slot.getSlot()));
+        }
+        return node; // 不认识的节点原样保留
+    }
+
+    private Expression constant(int value) {
+        return intern(new Key(ConstantExpression.class, value, null));
+    }
+
+    private Expression intern(Key key) {
+        Expression node = interned.get(key);
+        if (node == null) {
+            node = create(key);
+            interned.put(key, node);
+        }
+        return node;
+    }
+
+    private static Expression create(Key key) {
+        if (key.type() == AddExpression.class) {
+            return new AddExpression((Expression) key.first(), (Expression) key.second());
+        }
+        if (key.type() == SubtractExpression.class) {
+            return new SubtractExpression((Expression) key.first(), (Expression) key.second());
+        }
+        if (key.type() == ConstantExpression.class) {
+            return new ConstantExpression((Integer) key.first());
+        }
+        if (key.type() == VariableExpression.class) {
+            return new VariableExpression((String) key.first());
+        }
+        return new SlotVariableExpression((String) key.first(), (Integer) key.second());
+    }
+
+    private static void countReferences(Expression node, Map<Expression, Integer> references) {
+        if (references.merge(node, 1, Integer::sum) > 1) {
+            return; // 子节点已经统计过
+        }
+        if (node instanceof AddExpression) {
+            countReferences(((AddExpression) node).getLeft(), references);
+            countReferences(((AddExpression) node).getRight(), references);
+        } else if (node instanceof SubtractExpression) {
+            countReferences(((SubtractExpression) node).getLeft(), references);
+            countReferences(((SubtractExpression) node).getRight(), references);
+        }
+    }
+
+    /**
+     * 把被多处引用的内部节点替换为缓存包装
+     */
+    private Expression share(Expression node, Map<Expression, Integer> references) {
+        CachedExpression wrapper = cached.get(node);
+        if (wrapper != null) {
+            return wrapper; // 之前的表达式已经包装过
+        }
+        Expression result = node;
+        if (node instanceof AddExpression) {
+            AddExpression add = (AddExpression) node;
+            Expression left = share(add.getLeft(), references);
+            Expression right = share(add.getRight(), references);
+            if (left != add.getLeft() || right != add.getRight()) {
+                result = new AddExpression(left, right);
+            }
+        } else if (node instanceof SubtractExpression) {
+            SubtractExpression sub = (SubtractExpression) node;
+            Expression left = share(sub.getLeft(), references);
+            Expression right = share(sub.getRight(), references);
+            if (left != sub.getLeft() || right != sub.getRight()) {
+                result = new SubtractExpression(left, right);
+            }
+        } else {
+            return node; // 叶子节点读取代价很低，不需要缓存
+        }
+        if (references.getOrDefault(node, 0) > 1) {
+            wrapper = new CachedExpression(scope, scope.size++, result);
+            cached.put(node, wrapper);
+            return wrapper;
+        }
+        return result;
+    }
+
+    /**
+     * 缓存槽的编号空间
+     * 每个优化器一个，槽位从 0 开始连续编号，上下文的缓存数组只需要按本优化器的槽位数分配；
+     * 上下文同时记录槽位属于哪个编号空间，不同优化器的结果在同一个上下文中求值时不会互相误用
+     */
+    static final class CacheScope {
+        private int size; // 已分配的槽位数
+
+        int size() {
+            return size;
+        }
+    }
+
+    private static boolean isZero(Expression node) {
+        return node instanceof ConstantExpression && value(node) == 0;
+    }
+
+    private static int value(Expression node) {
+        return ((ConstantExpression) node).getValue();
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.behavioral.interpreter;
+
+/**
+ * 表达式解析器
+ * 把公式文本解析为表达式树，文法：
+ * <pre>
+ * expression := term (('+' | '-') term)*
+ * term       := number | variable | '(' expression ')' | '-' term
+ * variable   := [A-Za-z_][A-Za-z0-9_]*
+ * </pre>
+ * 手写的递归下降解析，直接在字符串上移动下标，只为变量名截取子串；
+ * 括号和负号的嵌套深度不超过 {@link #MAX_DEPTH}，运算项总数不超过 {@link #MAX_TERMS}：
+ * 优化、绑定、编译和求值都递归遍历树，a + a + ... + a 这样扁平的长公式会解析成很深的左斜树，
+ * 过深、过长的公式报语法错误而不是在后续步骤中栈溢出
+ */
+public class ExpressionParser {
+
+    static final int MAX_DEPTH = 256; // 最大嵌套深度
+    static final int MAX_TERMS = 1024; // 最多的运算项数（数字、变量、括号、负号各算一项）
+
+    private final String source; // 公式文本
+    private int position; // 当前位置
+    private int depth; // 当前嵌套深度
+    private int terms; // 已解析的运算项数
+
+    private ExpressionParser(String source) {
+        this.source = source;
+    }
+
+    /**
+     * 解析公式
+     * @param source 公式文本，例如 "a + (b - c) - 1"
+     * @return 表达式树
+     * @throws IllegalArgumentException 语法错误
+     */
+    public static Expression parse(String source) {
+        ExpressionParser parser = new ExpressionParser(source);
+        Expression expression = parser.expression();
+        parser.skipWhitespace();
+        if (parser.position < source.length()) {
+            throw parser.error("多余的字符 '" + source.charAt(parser.position) + "'");
+        }
+        return expression;
+    }
+
+    private Expression expression() {
+        Expression left = term();
+        while (true) {
+            skipWhitespace();
+            if (position >= source.length()) {
+                return left;
+            }
+            char c = source.charAt(position);
+            if (c == '+') {
+                position++;
+                left = new AddExpression(left, term());
+            } else if (c == '-') {
+                position++;
+                left = new SubtractExpression(left, term());
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private Expression term() {
+        if (++terms > MAX_TERMS) {
+            throw error("运算项超过 " + MAX_TERMS + " 个");
+        }
+        skipWhitespace();
+        if (position >= source.length()) {
+            throw error("表达式不完整");
+        }
+        char c = source.charAt(position);
+        if (c == '(') {
+            position++;
+            enter();
+            Expression inner = expression();
+            depth--;
+            skipWhitespace();
+            if (position >= source.length() || source.charAt(position) != ')') {
+                throw error("缺少 ')'");
+            }
+            position++;
+            return inner;
+        }
+        if (c == '-') {
+            position++;
+            enter();
+            Expression operand = term();
+            depth--;
+            return new SubtractExpression(new ConstantExpression(0), operand); // 负号
+        }
+        if (c >= '0' && c <= '9') {
+            return number();
+        }
+        if (Character.isLetter(c) || c == '_') {
+            int start = position;
+            while (position < source.length()
+                    && (Character.isLetterOrDigit(source.charAt(position)) || source.charAt(position) == '_')) {
+                position++;
+            }
+            return new VariableExpression(source.substring(start, position));
+        }
+        throw error("无法识别的字符 '" + c + "'");
+    }
+
+    private Expression number() {
+        long value = 0;
+        while (position < source.length() && source.charAt(position) >= '0' && source.charAt(position) <= '9') {
+            value = value * 10 + (source.charAt(position++) - '0');
+            if (value > Integer.MAX_VALUE) {
+                throw error("数字超出 int 范围");
+            }
+        }
+        return new ConstantExpression((int) value);
+    }
+
+    private void enter() {
+        if (++depth > MAX_DEPTH) {
+            throw error("嵌套超过 " + MAX_DEPTH + " 层");
+        }
+    }
+
+    private void skipWhitespace() {
+        while (position < source.length() && Character.isWhitespace(source.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("表达式语法错误: " + message + "，位置 " + position + "：" + source);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.behavioral.interpreter;
+
+/**
+ * 终结符表达式(已绑定槽位的变量表达式)
+ * 由 {@link VariableExpression#bind(Context)} 生成，求值时按槽位直接读取变量
+ */
+public class SlotVariableExpression implements Expression {
+
+    private final String name; // 变量名
+    private final int slot; // 槽位
+
+    public SlotVariableExpression(String name, int slot) {
+        this.name = name;
+        this.slot = slot;
+    }
+
+    @Override
+    public int interpret(Context context) {
+        return context.getVariable(slot); // 按槽位获取变量值
+    }
+
+    @Override
+    public Expression bind(Context context) {
+        return new SlotVariableExpression(name, context.slotOf(name)); // 重新绑定到另一种布局
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getSlot() {
+        return slot;
+    }
+}
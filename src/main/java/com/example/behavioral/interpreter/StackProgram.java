@@ -0,0 +1,416 @@
+package com.example.behavioral.interpreter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 栈式虚拟机程序
+ * 把表达式树编码为扁平的指令数组，用于在服务之间传输规则、从文件加载大量规则。
+ * 执行时是一个紧凑的栈机循环，不需要为每个节点创建对象；
+ * 指令直接从 ByteBuffer（包括内存映射文件）中读取，不复制
+ *
+ * 二进制格式（大端序，ushort 为无符号 16 位）：
+ * <pre>
+ * int    magic = 'EXPR'
+ * short  version = 2
+ * ushort nameCount
+ * nameCount 个 { ushort length, UTF-8 bytes }   变量名表
+ * ushort maxStack
+ * ushort localCount                              局部变量数（版本 1 没有这一项，为 0）
+ * int    codeLength
+ * codeLength 个 int 指令：低 8 位为操作码，高 24 位为操作数
+ * </pre>
+ * 指令：LOAD n（压入第 n 个变量）、PUSH v（压入 24 位常量）、PUSH_WIDE（压入下一个 int）、ADD、SUB、
+ * STORE n（把栈顶的值存入第 n 个局部变量，不出栈）、LOAD_LOCAL n（压入第 n 个局部变量）。
+ * 被多处引用的公共子表达式（{@link CachedExpression}）只编码一次，第一次计算后 STORE，之后的引用 LOAD_LOCAL，
+ * 程序长度与优化后的表达式图成正比，不会按树展开成指数大小
+ *
+ * 程序可能来自其他服务，读取时完整校验一遍（操作码、变量下标、栈深度），
+ * 格式错误在 read 时抛出 IllegalArgumentException，执行时不再检查
+ */
+public class StackProgram implements Expression {
+
+    private static final int MAGIC = 0x45585052; // 'EXPR'
+    private static final short VERSION = 2;
+    private static final int MAX_USHORT = 0xFFFF;
+    private static final int MAX_CODE_LENGTH = 1 << 24; // 编码时最多生成的指令数（64MB）
+    private static final ThreadLocal<int[]> STACK = ThreadLocal.withInitial(() -> new int[64]); // 每个线程复用的操作数栈
+
+    static final int LOAD = 1;
+    static final int PUSH = 2;
+    static final int PUSH_WIDE = 3;
+    static final int ADD = 4;
+    static final int SUB = 5;
+    static final int STORE = 6;
+    static final int LOAD_LOCAL = 7;
+
+    private final String[] names; // 变量名表
+    private final int maxStack; // 最大栈深度
+    private final int localCount; // 局部变量数，执行时放在操作数栈之后
+    private final IntBuffer code; // 指令（原始缓冲区的视图）
+    private final int[] slots; // 变量名在上下文中的槽位，未绑定时为 null
+
+    private StackProgram(String[] names, int maxStack, int localCount, IntBuffer code, int[] slots) {
+        this.names = names;
+        this.maxStack = maxStack;
+        this.localCount = localCount;
+        this.code = code;
+        this.slots = slots;
+    }
+
+    /**
+     * 把表达式编码为程序
+     * @throws IllegalArgumentException 表达式包含无法编码的节点，指令数超过 2^24，
+     *                                  或变量数、变量名长度、栈深度、局部变量数超过 65535
+     */
+    public static ByteBuffer encode(Expression expression) {
+        Encoder encoder = new Encoder();
+        encoder.count(expression);
+        int maxStack = encoder.emit(expression, 0);
+        Map<String, Integer> names = encoder.names;
+        checkRange("变量数", names.size());
+        checkRange("栈深度", maxStack);
+        checkRange("局部变量数", encoder.localCount);
+
+        byte[][] encodedNames = new byte[names.size()][];
+        long size = 4 + 2 + 2 + 2 + 2 + 4 + encoder.length * 4L;
+        int i = 0;
+        for (String name : names.keySet()) {
+            encodedNames[i] = name.getBytes(StandardCharsets.UTF_8);
+            checkRange("变量名长度", encodedNames[i].length);
+            size += 2 + encodedNames[i++].length;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("程序超过 2GB");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC).putShort(VERSION).putShort((short) names.size());
+        for (byte[] name : encodedNames) {
+            buffer.putShort((short) name.length).put(name);
+        }
+        buffer.putShort((short) maxStack).putShort((short) encoder.localCount).putInt(encoder.length);
+        buffer.asIntBuffer().put(encoder.code, 0, encoder.length);
+        return buffer.position(buffer.position() + encoder.length * 4).flip();
+    }
+
+    private static void checkRange(String what, int value) {
+        if (value > MAX_USHORT) {
+            throw new IllegalArgumentException(what + " " + value + " 超过 " + MAX_USHORT);
+        }
+    }
+
+    /**
+     * 编码器：先统计每个公共子表达式被引用的次数，再后序遍历生成指令
+     * 公共子表达式按（编号空间, 缓存槽）识别，绑定后复制出的 CachedExpression 仍视为同一个
+     */
+    private static final class Encoder {
+        private final Map<String, Integer> names = new LinkedHashMap<>();
+        private final Map<ExpressionOptimizer.CacheScope, Map<Integer, int[]>> shared = new HashMap<>(); // {引用次数, 局部变量下标}
+        private int[] code = new int[16];
+        private int length;
+        private int localCount;
+
+        /**
+         * 统计公共子表达式的引用次数，每个公共子表达式只向下遍历一次
+         */
+        void count(Expression node) {
+            if (node instanceof AddExpression) {
+                count(((AddExpression) node).getLeft());
+                count(((AddExpression) node).getRight());
+            } else if (node instanceof SubtractExpression) {
+                count(((SubtractExpression) node).getLeft());
+                count(((SubtractExpression) node).getRight());
+            } else if (node instanceof CachedExpression && shared((CachedExpression) node)[0]++ == 0) {
+                count(((CachedExpression) node).getInner());
+            }
+        }
+
+        /**
+         * 后序遍历生成指令
+         * @param depth 生成本节点之前的栈深度
+         * @return 生成过程中的最大栈深度
+         */
+        int emit(Expression node, int depth) {
+            if (node instanceof AddExpression || node instanceof SubtractExpression) {
+                boolean add = node instanceof AddExpression;
+                Expression left = add ? ((AddExpression) node).getLeft() : ((SubtractExpression) node).getLeft();
+                Expression right = add ? ((AddExpression) node).getRight() : ((SubtractExpression) node).getRight();
+                int max = emit(left, depth);
+                max = Math.max(max, emit(right, depth + 1));
+                add(add ? ADD : SUB);
+                return max;
+            }
+            if (node instanceof CachedExpression) {
+                CachedExpression cached = (CachedExpression) node;
+                int[] entry = shared(cached);
+                if (entry[0] < 2) {
+                    return emit(cached.getInner(), depth); // 只引用一次，直接内联
+                }
+                if (entry[1] >= 0) {
+                    add(entry[1] << 8 | LOAD_LOCAL);
+                    return depth + 1;
+                }
+                int max = emit(cached.getInner(), depth);
+                entry[1] = localCount++;
+                add(entry[1] << 8 | STORE);
+                return max;
+            }
+            if (node instanceof ConstantExpression) {
+                int value = ((ConstantExpression) node).getValue();
+                if (value >= -(1 << 23) && value < (1 << 23)) {
+                    add(value << 8 | PUSH);
+                } else {
+                    add(PUSH_WIDE);
+                    add(value);
+                }
+                return depth + 1;
+            }
+            String name;
+            if (node instanceof VariableExpression) {
+                name = ((VariableExpression) node).getName();
+            } else if (node instanceof SlotVariableExpression) {
+                name = ((SlotVariableExpression) node).getName();
+            } else {
+                throw new IllegalArgumentException("无法编码的表达式节点: " + node.getClass().getName());
+            }
+            int index = names.computeIfAbsent(name, n -> names.size());
+            add(index << 8 | LOAD);
+            return depth + 1;
+        }
+
+        private int[] shared(CachedExpression node) {
+            return shared.computeIfAbsent(node.getScope(), scope -> new HashMap<>())
+                    .computeIfAbsent(node.getIndex(), index -> new int[] {0, -1});
+        }
+
+        private void add(int instruction) {
+            if (length == code.length) {
+                if (length == MAX_CODE_LENGTH) {
+                    throw new IllegalArgumentException("程序超过 " + MAX_CODE_LENGTH + " 条指令");
+                }
+                code = Arrays.copyOf(code, Math.min(length * 2, MAX_CODE_LENGTH));
+            }
+            code[length++] = instruction;
+        }
+    }
+
+    /**
+     * 从缓冲区当前位置读取一个程序，读取后位置移到程序末尾
+     * 指令不复制，程序直接引用缓冲区中的数据
+     * @throws IllegalArgumentException 数据不完整或程序格式错误
+     */
+    public static StackProgram read(ByteBuffer buffer) {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("不是表达式程序");
+            }
+            short version = buffer.getShort();
+            if (version != 1 && version != VERSION) {
+                throw new IllegalArgumentException("不支持的程序版本: " + version);
+            }
+            String[] names = new String[buffer.getShort() & MAX_USHORT];
+            for (int i = 0; i < names.length; i++) {
+                byte[] bytes = new byte[buffer.getShort() & MAX_USHORT];
+                buffer.get(bytes);
+                names[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            int maxStack = buffer.getShort() & MAX_USHORT;
+            int localCount = version == 1 ? 0 : buffer.getShort() & MAX_USHORT;
+            int codeLength = buffer.getInt();
+            if (codeLength < 0 || codeLength > buffer.remaining() / 4) {
+                throw new IllegalArgumentException("指令长度 " + codeLength + " 超出数据范围");
+            }
+            IntBuffer code = buffer.slice(buffer.position(), codeLength * 4).asIntBuffer();
+            verify(code, names.length, maxStack, localCount);
+            buffer.position(buffer.position() + codeLength * 4);
+            return new StackProgram(names, maxStack, localCount, code, null);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("程序数据不完整", e);
+        }
+    }
+
+    /**
+     * 校验指令：操作码合法、变量下标在变量名表内、局部变量先存后取、栈既不下溢也不超过 maxStack、结束时栈上恰好一个值
+     */
+    private static void verify(IntBuffer code, int nameCount, int maxStack, int localCount) {
+        boolean[] stored = new boolean[localCount];
+        int depth = 0;
+        int length = code.limit();
+        for (int pc = 0; pc < length; pc++) {
+            int instruction = code.get(pc);
+            switch (instruction & 0xFF) {
+                case LOAD:
+                    if (instruction >>> 8 >= nameCount) {
+                        throw new IllegalArgumentException("指令 " + pc + " 引用了不存在的变量 " + (instruction >>> 8));
+                    }
+                    depth++;
+                    break;
+                case PUSH:
+                    depth++;
+                    break;
+                case PUSH_WIDE:
+                    if (++pc >= length) {
+                        throw new IllegalArgumentException("指令 " + (pc - 1) + " 缺少操作数");
+                    }
+                    depth++;
+                    break;
+                case ADD:
+                case SUB:
+                    if (depth < 2) {
+                        throw new IllegalArgumentException("指令 " + pc + " 栈下溢");
+                    }
+                    depth--;
+                    break;
+                case STORE:
+                    if (instruction >>> 8 >= localCount) {
+                        throw new IllegalArgumentException("指令 " + pc + " 引用了不存在的局部变量 " + (instruction >>> 8));
+                    }
+                    if (depth < 1) {
+                        throw new IllegalArgumentException("指令 " + pc + " 栈下溢");
+                    }
+                    stored[instruction >>> 8] = true;
+                    break;
+                case LOAD_LOCAL:
+                    if (instruction >>> 8 >= localCount || !stored[instruction >>> 8]) {
+                        throw new IllegalArgumentException("指令 " + pc + " 读取了未赋值的局部变量 " + (instruction >>> 8));
+                    }
+                    depth++;
+                    break;
+                default:
+                    throw new IllegalArgumentException("指令 " + pc + " 操作码未知: " + (instruction & 0xFF));
+            }
+            if (depth > maxStack) {
+                throw new IllegalArgumentException("指令 " + pc + " 栈深度超过声明的 " + maxStack);
+            }
+        }
+        if (depth != 1) {
+            throw new IllegalArgumentException("程序结束时栈深度为 " + depth + "，应为 1");
+        }
+    }
+
+    /**
+     * 读取缓冲区中剩余的所有程序
+     */
+    public static List<StackProgram> readAll(ByteBuffer buffer) {
+        List<StackProgram> programs = new ArrayList<>();
+        while (buffer.hasRemaining()) {
+            programs.add(read(buffer));
+        }
+        return programs;
+    }
+
+    /**
+     * 内存映射规则库文件（若干程序首尾相连），读取其中所有程序
+     * 指令留在映射内存中，不占用堆
+     */
+    public static List<StackProgram> load(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return readAll(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 绑定：把变量名表解析为 context 中的槽位，执行时按槽位读取变量
+     */
+    @Override
+    public StackProgram bind(Context context) {
+        int[] resolved = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            resolved[i] = context.slotOf(names[i]);
+        }
+        return new StackProgram(names, maxStack, localCount, code, resolved);
+    }
+
+    /**
+     * 执行程序，操作数栈和局部变量使用当前线程复用的数组
+     */
+    @Override
+    public int interpret(Context context) {
+        int[] stack = STACK.get();
+        if (stack.length < maxStack + localCount) {
+            stack = new int[maxStack + localCount];
+            STACK.set(stack);
+        }
+        return interpret(context, stack);
+    }
+
+    /**
+     * 使用调用方提供的数组执行程序，前 maxStack 个元素是操作数栈，之后是局部变量
+     * @param stack 长度至少为 {@link #getMaxStack()} + {@link #getLocalCount()}
+     */
+    public int interpret(Context context, int[] stack) {
+        if (stack.length < maxStack + localCount) {
+            throw new IllegalArgumentException("操作数栈长度 " + stack.length + " 小于 " + (maxStack + localCount));
+        }
+        int sp = 0;
+        int length = code.limit();
+        for (int pc = 0; pc < length; pc++) {
+            int instruction = code.get(pc);
+            switch (instruction & 0xFF) {
+                case LOAD:
+                    int index = instruction >>> 8;
+                    stack[sp++] = slots != null ? context.getVariable(slots[index]) : context.getVariable(names[index]);
+                    break;
+                case PUSH:
+                    stack[sp++] = instruction >> 8; // 算术右移保留符号
+                    break;
+                case PUSH_WIDE:
+                    stack[sp++] = code.get(++pc);
+                    break;
+                case ADD:
+                    sp--;
+                    stack[sp - 1] += stack[sp];
+                    break;
+                case SUB:
+                    sp--;
+                    stack[sp - 1] -= stack[sp];
+                    break;
+                case STORE:
+                    stack[maxStack + (instruction >>> 8)] = stack[sp - 1];
+                    break;
+                case LOAD_LOCAL:
+                    stack[sp++] = stack[maxStack + (instruction >>> 8)];
+                    break;
+                default:
+                    throw new IllegalStateException("未知指令: " + instruction);
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * 执行需要的最大栈深度
+     */
+    public int getMaxStack() {
+        return maxStack;
+    }
+
+    /**
+     * 局部变量数，即编码为 STORE / LOAD_LOCAL 的公共子表达式个数
+     */
+    public int getLocalCount() {
+        return localCount;
+    }
+
+    /**
+     * 程序引用的变量名，LOAD n 读取第 n 个
+     */
+    public List<String> getNames() {
+        return List.of(names);
+    }
+}
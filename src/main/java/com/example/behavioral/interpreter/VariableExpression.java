@@ -15,4 +15,13 @@ public class VariableExpression implements Expression {
     public int interpret(Context context) {
         return context.getVariable(name); // 获取变量值
     }
+
+    @Override
+    public Expression bind(Context context) {
+        return new SlotVariableExpression(name, context.slotOf(name)); // 未定义的变量在绑定时报错
+    }
+
+    String getName() {
+        return name;
+    }
 }
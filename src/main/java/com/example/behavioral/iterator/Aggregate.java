@@ -1,6 +1,11 @@
 package com.example.behavioral.iterator;
 
 import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * 自定义聚合接口
@@ -9,4 +14,55 @@ public interface Aggregate<T> {
 
     
     Iterator<T> iterator();
+
+    /**
+     * 批量迭代器
+     * 默认包装 iterator()（它本身已经是批量迭代器时直接返回），逐个取元素；
+     * 聚合可以覆盖该方法或让 iterator() 返回 {@link BatchIterator}，提供真正的批量复制
+     */
+    default BatchIterator<T> batchIterator() {
+        Iterator<T> iterator = iterator();
+        if (iterator instanceof BatchIterator) {
+            return (BatchIterator<T>) iterator;
+        }
+        return new BatchIterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void forEachRemaining(Consumer<? super T> action) {
+                iterator.forEachRemaining(action);
+            }
+        };
+    }
+
+    /**
+     * 可拆分迭代器，供流和 fork/join 并行处理使用
+     * 默认基于 iterator()，大小未知、拆分效果差；能按下标访问元素的聚合应当覆盖，
+     * 报告 SIZED | SUBSIZED | ORDERED 并均匀拆分
+     */
+    default Spliterator<T> spliterator() {
+        return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED);
+    }
+
+    /**
+     * 顺序流
+     */
+    default Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * 并行流，在公共 ForkJoinPool 上处理
+     */
+    default Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
 }
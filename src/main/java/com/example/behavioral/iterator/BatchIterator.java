@@ -0,0 +1,25 @@
+package com.example.behavioral.iterator;
+
+import java.util.Iterator;
+
+/**
+ * 批量迭代器
+ * 在 hasNext()/next() 之外增加 nextBatch，一次取出多个元素，
+ * 分块处理数据时省去每个元素两次接口调用。默认实现逐个调用 next()，
+ * 基于数组等连续存储的迭代器应当覆盖为批量复制
+ */
+public interface BatchIterator<T> extends Iterator<T> {
+
+    /**
+     * 取出下一批元素
+     * @param buffer 输出缓冲区，从下标 0 开始写入
+     * @return 写入的元素个数，没有剩余元素时返回 0
+     */
+    default int nextBatch(T[] buffer) {
+        int count = 0;
+        while (count < buffer.length && hasNext()) {
+            buffer[count++] = next();
+        }
+        return count;
+    }
+}
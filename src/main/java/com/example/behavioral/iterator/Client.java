@@ -1,10 +1,18 @@
 package com.example.behavioral.iterator;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
 public class Client {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         // 使用 ArrayList 的迭代器
         ArrayList<String> arrayList = new ArrayList<String>();
         arrayList.add("张三");
@@ -21,6 +29,48 @@ public class Client {
         while (nameIterator.hasNext()) {
             System.out.println(nameIterator.next());
         }
+        System.out.println("=====================");
+        // 使用流处理聚合，parallelStream() 按数组均匀拆分后在 ForkJoinPool 上并行处理
+        System.out.println(nameRepository.parallelStream().map(String::toUpperCase).collect(Collectors.toList()));
+        System.out.println("=====================");
+        // 批量迭代：一次取出多个元素
+        BatchIterator<String> batchIterator = nameRepository.batchIterator();
+        String[] buffer = new String[3];
+        int count;
+        while ((count = batchIterator.nextBatch(buffer)) > 0) {
+            System.out.println(Arrays.asList(buffer).subList(0, count));
+        }
+        System.out.println("=====================");
+        // 内存映射记录仓库：记录留在磁盘文件中，遍历时按需解码
+        Path file = Files.createTempFile("names", ".rec");
+        MappedRecordRepository.write(file, List.of("Robert", "John", "张三", "李四"));
+        Iterator<CharSequence> views = new MappedRecordRepository(file).viewIterator();
+        while (views.hasNext()) {
+            System.out.println(views.next());
+        }
+        Files.delete(file);
+        System.out.println("=====================");
+        // 预取迭代器：后台线程提前读取后面的页，消费者处理当前页时不必等待
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try (PrefetchingIterator<String> prefetching = new PrefetchingIterator<>(nameRepository.iterator(), executor, 2, 2)) {
+            while (prefetching.hasNext()) {
+                System.out.println(prefetching.next());
+            }
+            System.out.printf("预取命中率: %.2f%n", prefetching.getHitRate());
+        }
+        executor.shutdown();
+        System.out.println("=====================");
+        // 快照仓库：迭代器看到创建时的快照，之后的修改不可见
+        SnapshotRepository<String> snapshotRepository = new SnapshotRepository<>();
+        snapshotRepository.add("Robert");
+        snapshotRepository.add("John");
+        Iterator<String> snapshot = snapshotRepository.iterator();
+        snapshotRepository.add("Julie");
+        snapshotRepository.set(0, "Lora");
+        while (snapshot.hasNext()) {
+            System.out.println(snapshot.next());
+        }
+        System.out.println(snapshotRepository.stream().collect(Collectors.toList()));
     }
 
 }
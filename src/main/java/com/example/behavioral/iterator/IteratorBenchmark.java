@@ -0,0 +1,105 @@
+package com.example.behavioral.iterator;
+
+import java.util.Iterator;
+import java.util.StringJoiner;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 迭代器性能测试
+ * 1. 并行流扩展性：同一个仓库分别用 1 到 N 个线程处理
+ * 2. 逐个迭代 vs 批量迭代：hasNext()/next()、nextBatch、forEachRemaining
+ * 简单的预热 + 计时对比，结果只作数量级参考（精确测量请使用 JMH）
+ */
+public class IteratorBenchmark {
+
+    private static final int SIZE = 2_000_000;
+
+    public static void main(String[] args) throws Exception {
+        String[] names = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            names[i] = "name-" + i;
+        }
+        NameRepository repository = new NameRepository(names);
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        for (int round = 0; round < 5; round++) { // 前几轮为预热
+            StringJoiner line = new StringJoiner(", ", "round " + round + ": ", "");
+            for (int parallelism = 1; parallelism < cores * 2; parallelism *= 2) {
+                int threads = Math.min(parallelism, cores); // 核数不是 2 的幂时最后一档取核数
+                line.add(String.format("%d 线程 %.1f ms", threads, measure(repository, threads)));
+            }
+            System.out.println(line);
+        }
+        for (int round = 0; round < 5; round++) {
+            System.out.printf("round %d: next %.2f ns/op, nextBatch %.2f ns/op, forEachRemaining %.2f ns/op%n",
+                    round, measureNext(repository), measureBatch(repository), measureForEach(repository));
+        }
+    }
+
+    private static double measureNext(NameRepository repository) {
+        long start = System.nanoTime();
+        long sink = 0;
+        Iterator<String> iterator = repository.iterator();
+        while (iterator.hasNext()) {
+            sink += iterator.next().length();
+        }
+        return report(start, sink);
+    }
+
+    private static double measureBatch(NameRepository repository) {
+        long start = System.nanoTime();
+        long sink = 0;
+        BatchIterator<String> iterator = repository.batchIterator();
+        String[] buffer = new String[1024];
+        int count;
+        while ((count = iterator.nextBatch(buffer)) > 0) {
+            for (int i = 0; i < count; i++) {
+                sink += buffer[i].length();
+            }
+        }
+        return report(start, sink);
+    }
+
+    private static double measureForEach(NameRepository repository) {
+        long start = System.nanoTime();
+        long[] sink = new long[1];
+        repository.batchIterator().forEachRemaining(name -> sink[0] += name.length());
+        return report(start, sink[0]);
+    }
+
+    private static double report(long start, long sink) {
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            System.out.println(); // 防止循环被优化掉
+        }
+        return (double) elapsed / SIZE;
+    }
+
+    private static double measure(NameRepository repository, int parallelism) throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            long start = System.nanoTime();
+            long sink = pool.submit(() -> repository.parallelStream().mapToLong(IteratorBenchmark::work).sum()).get();
+            long elapsed = System.nanoTime() - start;
+            if (sink == 42) {
+                System.out.println(); // 防止计算被优化掉
+            }
+            return elapsed / 1e6;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 每个元素上的计算量，避免测试只反映内存带宽
+     */
+    private static long work(String name) {
+        long hash = 0;
+        for (int i = 0; i < 16; i++) {
+            for (int j = 0; j < name.length(); j++) {
+                hash = hash * 31 + name.charAt(j);
+            }
+        }
+        return hash;
+    }
+}
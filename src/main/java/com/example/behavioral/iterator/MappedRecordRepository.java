@@ -0,0 +1,208 @@
+package com.example.behavioral.iterator;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 内存映射记录仓库
+ * 数据放在磁盘文件中，每条记录为 4 字节长度（大端序）加 UTF-8 字节。文件整体映射到内存，
+ * 遍历时按需解码，文件内容不会整体加载到堆中，适合远大于堆的名字/记录集合。
+ *
+ * 单个映射最大 2GB，所以大文件按 1GB 分段映射；相邻分段重叠一条最大记录的长度，
+ * 保证任何一条记录都完整地落在它起始位置所在的分段中
+ */
+public class MappedRecordRepository implements Aggregate<String> {
+
+    public static final int MAX_RECORD_SIZE = 1 << 20; // 单条记录最大字节数
+    private static final int SEGMENT_SHIFT = 30; // 分段大小 1GB
+
+    private final ByteBuffer[] segments;
+    private final int segmentShift;
+    private final long size; // 文件字节数
+
+    /**
+     * 映射记录文件
+     * @param file 由 {@link #write(Path, Iterable)} 写出的记录文件
+     */
+    public MappedRecordRepository(Path file) {
+        this(file, SEGMENT_SHIFT);
+    }
+
+    MappedRecordRepository(Path file, int segmentShift) {
+        this.segmentShift = segmentShift;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = channel.size();
+            long segmentSize = 1L << segmentShift;
+            segments = new ByteBuffer[(int) ((size + segmentSize - 1) >>> segmentShift)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long) i << segmentShift;
+                long length = Math.min(size - start, segmentSize + 4 + MAX_RECORD_SIZE); // 包含重叠部分
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length); // 通道关闭后映射仍然有效
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 写出记录文件
+     * @throws IllegalArgumentException 某条记录超过 {@link #MAX_RECORD_SIZE}
+     */
+    public static void write(Path file, Iterable<? extends CharSequence> records) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            for (CharSequence record : records) {
+                byte[] bytes = record.toString().getBytes(StandardCharsets.UTF_8);
+                if (bytes.length > MAX_RECORD_SIZE) {
+                    throw new IllegalArgumentException("记录长度 " + bytes.length + " 超过上限 " + MAX_RECORD_SIZE);
+                }
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 逐条解码为 String 的迭代器
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new RecordIterator<>() {
+            @Override
+            String current(ByteBuffer segment, int offset, int length) {
+                byte[] bytes = new byte[length];
+                segment.get(offset, bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    /**
+     * 返回可复用视图的迭代器：每次 next() 返回同一个 CharSequence 对象，内容指向当前记录，
+     * 遍历过程不为记录分配对象。需要保留记录时调用 toString() 复制
+     */
+    public Iterator<CharSequence> viewIterator() {
+        RecordView view = new RecordView();
+        return new RecordIterator<>() {
+            @Override
+            CharSequence current(ByteBuffer segment, int offset, int length) {
+                view.set(segment, offset, length);
+                return view;
+            }
+        };
+    }
+
+    /**
+     * 按文件位置顺序遍历记录
+     */
+    private abstract class RecordIterator<T> implements Iterator<T> {
+        private long position;
+
+        @Override
+        public boolean hasNext() {
+            return position < size;
+        }
+
+        @Override
+        public T next() {
+            if (position >= size) {
+                throw new NoSuchElementException();
+            }
+            ByteBuffer segment = segments[(int) (position >>> segmentShift)];
+            int offset = (int) (position & ((1L << segmentShift) - 1));
+            if (offset + 4 > segment.limit()) {
+                throw new IllegalStateException("记录文件已损坏，位置 " + position);
+            }
+            int length = segment.getInt(offset);
+            if (length < 0 || length > MAX_RECORD_SIZE || offset + 4 + length > segment.limit()) {
+                throw new IllegalStateException("记录文件已损坏，位置 " + position);
+            }
+            position += 4 + length;
+            return current(segment, offset + 4, length);
+        }
+
+        abstract T current(ByteBuffer segment, int offset, int length);
+    }
+
+    /**
+     * 映射内存上的字符序列视图
+     * 纯 ASCII 记录直接按字节读取映射内存；含多字节字符时解码到复用的字符缓冲区
+     */
+    private static class RecordView implements CharSequence {
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+        private ByteBuffer segment;
+        private int offset;
+        private int length;
+        private boolean ascii;
+        private CharBuffer chars = CharBuffer.allocate(256);
+
+        void set(ByteBuffer segment, int offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.ascii = true;
+            for (int i = 0; i < length; i++) {
+                if (segment.get(offset + i) < 0) {
+                    ascii = false;
+                    break;
+                }
+            }
+            if (ascii) {
+                this.length = length;
+                return;
+            }
+            if (chars.capacity() < length) {
+                chars = CharBuffer.allocate(length); // UTF-8 解码后的字符数不超过字节数
+            }
+            chars.clear();
+            decoder.reset();
+            CoderResult result = decoder.decode(segment.slice(offset, length), chars, true);
+            if (result.isError()) {
+                throw new IllegalStateException("记录不是合法的 UTF-8");
+            }
+            decoder.flush(chars);
+            this.length = chars.position();
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return ascii ? (char) segment.get(offset + index) : chars.get(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            if (ascii) {
+                byte[] bytes = new byte[length];
+                segment.get(offset, bytes);
+                return new String(bytes, StandardCharsets.ISO_8859_1);
+            }
+            return new String(chars.array(), 0, length);
+        }
+    }
+}
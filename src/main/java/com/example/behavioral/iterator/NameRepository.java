@@ -1,6 +1,9 @@
 package com.example.behavioral.iterator;
 
 import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 /**
  * 名字仓库
  */
@@ -8,12 +11,35 @@ public class NameRepository implements Aggregate<String> {
 
     private String[] names = { "Robert", "John", "Julie", "Lora" };
 
+    public NameRepository() {
+    }
+
+    /**
+     * @param names 仓库中的名字（不复制，调用方不应再修改该数组）
+     */
+    public NameRepository(String... names) {
+        this.names = names;
+    }
+
     @Override
     public Iterator<String> iterator() {
         return new NameIterator();
     }
 
-    class NameIterator implements Iterator<String> {
+    /**
+     * 基于数组的可拆分迭代器：每次从中间对半拆分，报告 SIZED | SUBSIZED | ORDERED
+     */
+    @Override
+    public Spliterator<String> spliterator() {
+        return Spliterators.spliterator(names, Spliterator.ORDERED | Spliterator.IMMUTABLE);
+    }
+
+    @Override
+    public BatchIterator<String> batchIterator() {
+        return new NameIterator();
+    }
+
+    class NameIterator implements BatchIterator<String> {
         private int index;
 
         @Override
@@ -25,5 +51,29 @@ public class NameRepository implements Aggregate<String> {
         public String next() {
             return names[index++];
         }
+
+        /**
+         * 从内部数组批量复制
+         */
+        @Override
+        public int nextBatch(String[] buffer) {
+            int count = Math.min(buffer.length, names.length - index);
+            System.arraycopy(names, index, buffer, 0, count);
+            index += count;
+            return count;
+        }
+
+        /**
+         * 直接遍历内部数组，不经过 hasNext()/next()
+         */
+        @Override
+        public void forEachRemaining(Consumer<? super String> action) {
+            String[] array = names;
+            int end = array.length;
+            for (int i = index; i < end; i++) {
+                action.accept(array[i]);
+            }
+            index = end;
+        }
     }
-}
\ No newline at end of file
+}
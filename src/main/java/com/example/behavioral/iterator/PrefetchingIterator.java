@@ -0,0 +1,192 @@
+package com.example.behavioral.iterator;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * 预取迭代器（装饰器）
+ * 数据源产生元素很慢时（读文件、按页计算），在后台执行器上提前按页读取后面的 depth 页，
+ * 消费者处理当前页的同时生产下一页。最多只预取 depth 页，消费者不取走页面就不会继续读取（背压）。
+ *
+ * 数据源迭代器不需要线程安全：各页的读取任务依次串联，同一时刻只有一个线程访问它。
+ * 迭代器本身只能由一个消费者线程使用；提前结束遍历时调用 {@link #close()} 取消尚未开始的读取
+ */
+public class PrefetchingIterator<T> implements BatchIterator<T>, AutoCloseable {
+
+    private static final Object[] END = new Object[0]; // 数据源已读完
+
+    private final Iterator<T> source;
+    private final Executor executor;
+    private final int pageSize;
+    private final Deque<CompletableFuture<Object[]>> pending = new ArrayDeque<>(); // 已提交的页，按顺序
+    private CompletableFuture<Object[]> tail; // 最后提交的页，下一页在它完成后读取
+    private volatile boolean closed;
+
+    private Object[] page = new Object[0]; // 当前页
+    private int index; // 当前页中下一个元素的下标
+    private boolean finished;
+
+    private long hits; // 需要下一页时已经读好
+    private long misses; // 需要下一页时还在读取，消费者等待
+    private long stallNanos; // 消费者等待的总时间
+
+    /**
+     * @param source 数据源
+     * @param executor 执行读取任务的执行器，应当是有界的线程池
+     * @param pageSize 每页元素数
+     * @param depth 预取页数
+     */
+    public PrefetchingIterator(Iterator<T> source, Executor executor, int pageSize, int depth) {
+        if (pageSize <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("页大小和预取页数必须大于 0");
+        }
+        this.source = source;
+        this.executor = executor;
+        this.pageSize = pageSize;
+        this.tail = CompletableFuture.completedFuture(new Object[0]);
+        for (int i = 0; i < depth; i++) {
+            schedule();
+        }
+    }
+
+    /**
+     * 提交下一页的读取任务，在上一页读完之后执行
+     */
+    private void schedule() {
+        tail = tail.thenApplyAsync(previous -> previous == END || closed ? END : fetch(), executor);
+        pending.addLast(tail);
+    }
+
+    private Object[] fetch() {
+        Object[] buffer = new Object[pageSize];
+        int count = 0;
+        while (count < pageSize && source.hasNext()) {
+            buffer[count++] = source.next();
+        }
+        if (count == 0) {
+            return END;
+        }
+        if (count < pageSize) {
+            Object[] last = new Object[count];
+            System.arraycopy(buffer, 0, last, 0, count);
+            return last;
+        }
+        return buffer;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (index == page.length) {
+            if (finished || !advance()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return (T) page[index++];
+    }
+
+    /**
+     * 从当前页批量复制，当前页用完时切换到下一页
+     */
+    @Override
+    public int nextBatch(T[] buffer) {
+        int count = 0;
+        while (count < buffer.length && hasNext()) {
+            int n = Math.min(buffer.length - count, page.length - index);
+            System.arraycopy(page, index, buffer, count, n);
+            index += n;
+            count += n;
+        }
+        return count;
+    }
+
+    /**
+     * 取出下一页，同时补充提交一页读取任务
+     * @return false 表示已经没有元素
+     */
+    private boolean advance() {
+        CompletableFuture<Object[]> future = pending.pollFirst();
+        if (future.isDone()) {
+            hits++;
+        } else {
+            misses++;
+        }
+        long start = System.nanoTime();
+        try {
+            page = future.join();
+        } catch (CompletionException e) {
+            finished = true;
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause(); // 数据源抛出的异常原样抛给消费者
+            }
+            throw e;
+        } finally {
+            stallNanos += System.nanoTime() - start;
+        }
+        index = 0;
+        if (page == END) {
+            finished = true;
+            return false;
+        }
+        schedule();
+        return true;
+    }
+
+    /**
+     * 停止预取：尚未开始的读取任务不再访问数据源，已经在执行的任务读完当前页后结束。
+     * 关闭后 hasNext() 返回 false
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (CompletableFuture<Object[]> future : pending) {
+            future.cancel(false);
+        }
+        pending.clear();
+        page = END; // 丢弃当前页剩余的元素
+        index = 0;
+        finished = true;
+    }
+
+    /**
+     * 需要下一页时已经读好的次数
+     */
+    public long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * 需要下一页时还在读取、消费者必须等待的次数
+     */
+    public long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * 预取命中率
+     */
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * 消费者等待页面的总时间（纳秒）
+     */
+    public long getStallNanos() {
+        return stallNanos;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.behavioral.iterator;
+
+import java.util.Iterator;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 快照遍历性能对比：SnapshotRepository vs CopyOnWriteArrayList
+ * 一个写线程不停地替换/追加元素，多个读线程不停地完整遍历，统计每秒写入次数和每秒遍历的元素数。
+ * 简单的预热 + 计时对比，结果只作数量级参考（精确测量请使用 JMH）
+ */
+public class SnapshotBenchmark {
+
+    private static final int INITIAL_SIZE = 100_000;
+    private static final int READERS = 2;
+    private static final long DURATION_MILLIS = 1000;
+
+    public static void main(String[] args) throws InterruptedException {
+        for (int round = 0; round < 3; round++) { // 第一轮为预热
+            SnapshotRepository<Integer> snapshot = new SnapshotRepository<>();
+            CopyOnWriteArrayList<Integer> copyOnWrite = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < INITIAL_SIZE; i++) {
+                snapshot.add(i);
+                copyOnWrite.add(i);
+            }
+            System.out.println("round " + round + ":");
+            run("SnapshotRepository", snapshot::iterator, () -> {
+                int size = snapshot.size();
+                if (ThreadLocalRandom.current().nextInt(10) == 0) {
+                    snapshot.add(size);
+                } else {
+                    snapshot.set(ThreadLocalRandom.current().nextInt(size), size);
+                }
+            });
+            run("CopyOnWriteArrayList", copyOnWrite::iterator, () -> {
+                int size = copyOnWrite.size();
+                if (ThreadLocalRandom.current().nextInt(10) == 0) {
+                    copyOnWrite.add(size);
+                } else {
+                    copyOnWrite.set(ThreadLocalRandom.current().nextInt(size), size);
+                }
+            });
+        }
+    }
+
+    private static void run(String name, Supplier<Iterator<Integer>> reader, Runnable writer) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder reads = new LongAdder();
+        LongAdder writes = new LongAdder();
+        Thread[] threads = new Thread[READERS + 1];
+        for (int i = 0; i < READERS; i++) {
+            threads[i] = new Thread(() -> {
+                long sink = 0;
+                while (running.get()) {
+                    Iterator<Integer> iterator = reader.get();
+                    long count = 0;
+                    while (iterator.hasNext()) {
+                        sink += iterator.next();
+                        count++;
+                    }
+                    reads.add(count);
+                }
+                if (sink == 42) {
+                    System.out.println(); // 防止循环被优化掉
+                }
+            });
+        }
+        threads[READERS] = new Thread(() -> {
+            while (running.get()) {
+                writer.run();
+                writes.increment();
+            }
+        });
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        Thread.sleep(DURATION_MILLIS);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = DURATION_MILLIS / 1000.0;
+        System.out.printf("  %-20s 写入 %,12.0f 次/秒，遍历 %,14.0f 元素/秒%n",
+                name, writes.sum() / seconds, reads.sum() / seconds);
+    }
+}
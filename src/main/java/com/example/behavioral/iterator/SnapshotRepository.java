@@ -0,0 +1,221 @@
+package com.example.behavioral.iterator;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 快照仓库
+ * 支持一边遍历一边修改：每个迭代器看到的是创建时的一致快照，写入者不会被读取者阻塞。
+ *
+ * 内部是一个持久化向量（32 叉前缀树 + 尾部数组）：修改时只复制从根到目标叶子的一条路径（最多几层），
+ * 其余节点与旧版本共享，不需要像 CopyOnWriteArrayList 那样复制整个数组。
+ * 当前版本保存在 AtomicReference 中，写入者用 CAS 发布新版本，冲突时基于最新版本重试（无锁）
+ */
+public class SnapshotRepository<T> implements Aggregate<T> {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS; // 每个节点 32 个子节点
+    private static final int MASK = WIDTH - 1;
+
+    private final AtomicReference<Vector> current = new AtomicReference<>(Vector.EMPTY);
+
+    /**
+     * 追加元素，均摊 O(1)
+     */
+    public void add(T element) {
+        current.updateAndGet(vector -> vector.append(element));
+    }
+
+    /**
+     * 替换元素，复制一条路径，O(log32 n)
+     */
+    public void set(int index, T element) {
+        current.updateAndGet(vector -> vector.set(index, element));
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        Vector vector = current.get();
+        vector.check(index);
+        return (T) vector.leafFor(index)[index & MASK];
+    }
+
+    public int size() {
+        return current.get().size;
+    }
+
+    /**
+     * 遍历调用时刻的快照，之后的修改不可见
+     */
+    @Override
+    public BatchIterator<T> iterator() {
+        return new SnapshotIterator(current.get());
+    }
+
+    /**
+     * 快照大小已知，报告 SIZED | ORDERED | IMMUTABLE
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        Vector vector = current.get();
+        return Spliterators.spliterator(new SnapshotIterator(vector), vector.size, Spliterator.ORDERED | Spliterator.IMMUTABLE);
+    }
+
+    /**
+     * 不可变的向量版本
+     */
+    private static final class Vector {
+        static final Vector EMPTY = new Vector(0, BITS, new Object[WIDTH], new Object[0]);
+
+        final int size;
+        final int shift; // 根节点所在层的位移
+        final Object[] root;
+        final Object[] tail; // 最后不满 32 个的元素，追加时通常只复制它
+
+        Vector(int size, int shift, Object[] root, Object[] tail) {
+            this.size = size;
+            this.shift = shift;
+            this.root = root;
+            this.tail = tail;
+        }
+
+        int tailOffset() {
+            return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+        }
+
+        void check(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("下标 " + index + " 超出范围 " + size);
+            }
+        }
+
+        /**
+         * 包含 index 的叶子数组
+         */
+        Object[] leafFor(int index) {
+            if (index >= tailOffset()) {
+                return tail;
+            }
+            Object[] node = root;
+            for (int level = shift; level > 0; level -= BITS) {
+                node = (Object[]) node[(index >>> level) & MASK];
+            }
+            return node;
+        }
+
+        Vector append(Object element) {
+            if (size - tailOffset() < WIDTH) { // 尾部还有空间
+                Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+                newTail[tail.length] = element;
+                return new Vector(size + 1, shift, root, newTail);
+            }
+            // 尾部已满：放入树中，再开始新的尾部
+            Object[] newRoot;
+            int newShift = shift;
+            if ((size >>> BITS) > (1 << shift)) { // 根节点已满，树增高一层
+                newRoot = new Object[WIDTH];
+                newRoot[0] = root;
+                newRoot[1] = newPath(shift, tail);
+                newShift += BITS;
+            } else {
+                newRoot = pushTail(shift, root, tail);
+            }
+            return new Vector(size + 1, newShift, newRoot, new Object[]{element});
+        }
+
+        private Object[] pushTail(int level, Object[] parent, Object[] tailNode) {
+            int index = ((size - 1) >>> level) & MASK;
+            Object[] copy = parent.clone();
+            if (level == BITS) {
+                copy[index] = tailNode;
+            } else {
+                Object[] child = (Object[]) parent[index];
+                copy[index] = child != null ? pushTail(level - BITS, child, tailNode) : newPath(level - BITS, tailNode);
+            }
+            return copy;
+        }
+
+        private static Object[] newPath(int level, Object[] node) {
+            if (level == 0) {
+                return node;
+            }
+            Object[] path = new Object[WIDTH];
+            path[0] = newPath(level - BITS, node);
+            return path;
+        }
+
+        Vector set(int index, Object element) {
+            check(index);
+            if (index >= tailOffset()) {
+                Object[] newTail = tail.clone();
+                newTail[index & MASK] = element;
+                return new Vector(size, shift, root, newTail);
+            }
+            return new Vector(size, shift, assoc(shift, root, index, element), tail);
+        }
+
+        private static Object[] assoc(int level, Object[] node, int index, Object element) {
+            Object[] copy = node.clone();
+            if (level == 0) {
+                copy[index & MASK] = element;
+            } else {
+                int child = (index >>> level) & MASK;
+                copy[child] = assoc(level - BITS, (Object[]) node[child], index, element);
+            }
+            return copy;
+        }
+    }
+
+    /**
+     * 快照迭代器，按叶子数组逐段遍历
+     */
+    private class SnapshotIterator implements BatchIterator<T> {
+        private final Vector vector;
+        private Object[] leaf;
+        private int index;
+
+        SnapshotIterator(Vector vector) {
+            this.vector = vector;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < vector.size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (index >= vector.size) {
+                throw new NoSuchElementException();
+            }
+            if ((index & MASK) == 0) {
+                leaf = vector.leafFor(index); // 每 32 个元素查找一次叶子
+            }
+            return (T) leaf[index++ & MASK];
+        }
+
+        /**
+         * 从叶子数组批量复制
+         */
+        @Override
+        public int nextBatch(T[] buffer) {
+            int count = 0;
+            while (count < buffer.length && index < vector.size) {
+                Object[] current = vector.leafFor(index);
+                int offset = index & MASK;
+                int n = Math.min(buffer.length - count, Math.min(current.length - offset, vector.size - index));
+                System.arraycopy(current, offset, buffer, count, n);
+                index += n;
+                count += n;
+            }
+            if (index < vector.size && (index & MASK) != 0) {
+                leaf = vector.leafFor(index); // 停在叶子中间时，next() 需要当前叶子
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.behavioral.mediator;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 异步聊天室中介者
+ * 每个用户有一个有界信箱，由执行器上的投递任务依次取出消息调用 receive()。
+ * sendMessage 只把消息放进其他用户的信箱就返回，慢用户不会拖慢发送者，
+ * 广播耗时也不再包含每个用户处理消息的时间。
+ *
+ * 顺序保证：同一个发送者的消息按发送顺序到达每个接收者（不同发送者之间的消息没有全局顺序）。
+ * 信箱满时按接收者的 {@link DeliveryPolicy} 处理，默认丢弃新消息并计数，发送者不会被阻塞；
+ * 少数接收者处理不过来时，其他接收者的投递延迟不受影响。
+ * BLOCK 策略只让发送者等待满了的那个接收者，并且最多等待 maxLag，其他接收者先收到消息
+ */
+public class AsyncChatRoom implements ChatMediator {
+
+    private static final Duration DEFAULT_MAX_LAG = Duration.ofSeconds(10);
+
+    private final Executor executor;
+    private final int mailboxCapacity;
+    private final Map<User, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final LongAdder disconnected = new LongAdder();
+
+    /**
+     * @param executor 执行投递任务的执行器，例如 ForkJoinPool；同一个信箱的投递任务不会并发执行
+     * @param mailboxCapacity 每个信箱最多积压的消息数
+     */
+    public AsyncChatRoom(Executor executor, int mailboxCapacity) {
+        if (mailboxCapacity <= 0) {
+            throw new IllegalArgumentException("信箱容量必须大于 0");
+        }
+        this.executor = executor;
+        this.mailboxCapacity = mailboxCapacity;
+    }
+
+    /**
+     * 用户加入聊天室，信箱满时丢弃新消息
+     */
+    public void join(User user) {
+        join(user, DeliveryPolicy.DROP_NEWEST);
+    }
+
+    /**
+     * 用户加入聊天室
+     * @param policy 信箱满时的处理策略；DISCONNECT 允许的最大延迟和 BLOCK 最多等待的时间为 10 秒
+     */
+    public void join(User user, DeliveryPolicy policy) {
+        join(user, policy, DEFAULT_MAX_LAG);
+    }
+
+    /**
+     * 用户加入聊天室
+     * @param policy 信箱满时的处理策略
+     * @param maxLag DISCONNECT 策略允许的最大延迟，信箱中最旧的消息等待超过该时间时断开用户并调用
+     *               {@link User#disconnected(String)}；BLOCK 策略下发送者最多等待该时间，超时丢弃这条消息
+     */
+    public void join(User user, DeliveryPolicy policy, Duration maxLag) {
+        mailboxes.computeIfAbsent(user, u -> new Mailbox(u, executor, mailboxCapacity, policy, maxLag.toNanos(), this::evict));
+    }
+
+    private void evict(Mailbox mailbox) {
+        if (mailboxes.remove(mailbox.getUser(), mailbox)) {
+            disconnected.increment();
+        }
+    }
+
+    /**
+     * 用户离开聊天室，信箱中尚未投递的消息仍会投递
+     */
+    public void leave(User user) {
+        mailboxes.remove(user);
+    }
+
+    /**
+     * 消息只编码一次，所有信箱共享同一个信封
+     */
+    @Override
+    public void sendMessage(String message, User user) {
+        sendMessage(new MessageEnvelope(user.name, message), user);
+    }
+
+    /**
+     * 先把消息放进所有不用等待的信箱，再同时等待满了的 BLOCK 信箱，由接收者的投递任务唤醒
+     */
+    @Override
+    public void sendMessage(MessageEnvelope envelope, User user) {
+        long start = System.nanoTime();
+        List<Mailbox> blocked = null;
+        for (Mailbox mailbox : mailboxes.values()) {
+            if (mailbox.getUser() != user && !mailbox.tryOffer(envelope)) { // 排除发送者自己
+                if (blocked == null) {
+                    blocked = new ArrayList<>();
+                }
+                blocked.add(mailbox);
+            }
+        }
+        if (blocked != null) {
+            Mailbox.offerAll(blocked, envelope, start); // 同时等待所有满了的 BLOCK 信箱
+        }
+    }
+
+    /**
+     * 检查 DISCONNECT 策略的信箱，断开最旧的消息等待超过最大延迟的接收者。
+     * 投递任务取消息时也会检查；接收者卡在 receive() 里时投递任务无法检查，可以由定时任务周期调用本方法
+     * @return 本次断开的用户数
+     */
+    public int checkLag() {
+        long now = System.nanoTime();
+        int count = 0;
+        for (Mailbox mailbox : mailboxes.values()) {
+            if (mailbox.checkLag(now)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 用户是否在聊天室中（被断开的用户不在）
+     */
+    public boolean contains(User user) {
+        return mailboxes.containsKey(user);
+    }
+
+    /**
+     * 用户信箱中积压的消息数
+     */
+    public int getPendingCount(User user) {
+        Mailbox mailbox = mailboxes.get(user);
+        return mailbox == null ? 0 : mailbox.size();
+    }
+
+    /**
+     * 按投递策略丢弃的发给该用户的消息数
+     */
+    public long getDroppedCount(User user) {
+        Mailbox mailbox = mailboxes.get(user);
+        return mailbox == null ? 0 : mailbox.getDroppedCount();
+    }
+
+    /**
+     * 发给该用户的消息中，receive() 抛出异常的次数
+     */
+    public long getFailedCount(User user) {
+        Mailbox mailbox = mailboxes.get(user);
+        return mailbox == null ? 0 : mailbox.getFailedCount();
+    }
+
+    /**
+     * 用户信箱中最旧的消息已经等待的时间（纳秒），信箱为空时为 0
+     */
+    public long getLagNanos(User user) {
+        Mailbox mailbox = mailboxes.get(user);
+        return mailbox == null ? 0 : mailbox.getLagNanos();
+    }
+
+    /**
+     * 因延迟过大被断开的用户数
+     */
+    public long getDisconnectedCount() {
+        return disconnected.sum();
+    }
+
+    /**
+     * 各接收者的投递指标报告：策略、积压数、丢弃数、处理失败数、当前延迟（毫秒）
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-16s %-16s %8s %10s %8s %10s%n", "user", "policy", "depth", "dropped", "failed", "lag(ms)"));
+        for (Mailbox mailbox : mailboxes.values()) {
+            sb.append(String.format("%-16s %-16s %8d %10d %8d %10.1f%n", mailbox.getUser().name, mailbox.getPolicy(),
+                    mailbox.size(), mailbox.getDroppedCount(), mailbox.getFailedCount(), mailbox.getLagNanos() / 1e6));
+        }
+        sb.append("disconnected: ").append(disconnected.sum()).append(System.lineSeparator());
+        return sb.toString();
+    }
+}
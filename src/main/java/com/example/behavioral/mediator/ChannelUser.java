@@ -0,0 +1,35 @@
+package com.example.behavioral.mediator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 把收到的消息写到通道的用户（例如网络连接、日志文件）
+ * 收到信封时直接写出它已经编码好的帧，不重新编码；多个发送者并发广播时写入按信封整体串行
+ */
+public class ChannelUser extends User {
+
+    private final WritableByteChannel channel;
+
+    public ChannelUser(String name, ChatMediator chatMediator, WritableByteChannel channel) {
+        super(name, chatMediator);
+        this.channel = channel;
+    }
+
+    @Override
+    public void receive(String message) {
+        receive(new MessageEnvelope("", message)); // 只有文本时才需要编码
+    }
+
+    @Override
+    public void receive(MessageEnvelope envelope) {
+        synchronized (channel) {
+            try {
+                envelope.writeTo(channel);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
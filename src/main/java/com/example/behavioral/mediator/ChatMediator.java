@@ -6,5 +6,13 @@ package com.example.behavioral.mediator;
 public interface ChatMediator {
 
     void sendMessage(String message, User user);
+
+    /**
+     * 广播已经编码好的消息信封，所有接收者共享同一个信封
+     * 默认退化为按文本发送
+     */
+    default void sendMessage(MessageEnvelope envelope, User user) {
+        sendMessage(envelope.getText(), user);
+    }
 }
 
@@ -0,0 +1,90 @@
+package com.example.behavioral.mediator;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 聊天室注册表
+ * 管理大量聊天室，保存在 ConcurrentHashMap 中：查找聊天室（最频繁的操作）不加锁，
+ * 创建和删除只锁住 id 所在的哈希桶，不同聊天室之间互不影响。
+ * 通过注册表加入聊天室时，成员变化在该 id 的原子 compute 中完成，不会和删除交错，
+ * 因此不会把用户加入一个已经被删除的聊天室
+ */
+public class ChatRoomRegistry {
+
+    private final ConcurrentMap<String, ConcurrentChatRoom> rooms;
+
+    public ChatRoomRegistry() {
+        this.rooms = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @param expectedRooms 预计的聊天室数量，用于预分配容量
+     */
+    public ChatRoomRegistry(int expectedRooms) {
+        if (expectedRooms < 0) {
+            throw new IllegalArgumentException("聊天室数量不能小于 0");
+        }
+        this.rooms = new ConcurrentHashMap<>(expectedRooms);
+    }
+
+    /**
+     * 获取聊天室，不存在时创建
+     */
+    public ConcurrentChatRoom room(String roomId) {
+        ConcurrentChatRoom room = rooms.get(roomId); // 已存在时不走 computeIfAbsent，不加锁
+        return room != null ? room : rooms.computeIfAbsent(roomId, ConcurrentChatRoom::new);
+    }
+
+    /**
+     * 获取聊天室，不存在时返回 null
+     */
+    public ConcurrentChatRoom get(String roomId) {
+        return rooms.get(roomId);
+    }
+
+    /**
+     * 删除聊天室，之后通过 room() 获取的是新的空聊天室
+     * @return 被删除的聊天室，不存在时返回 null
+     */
+    public ConcurrentChatRoom remove(String roomId) {
+        return rooms.remove(roomId);
+    }
+
+    /**
+     * 用户加入聊天室，聊天室不存在时创建
+     * 加入与 {@link #remove(String)} 原子地先后发生：要么加入被删除前的聊天室，要么加入新建的聊天室
+     */
+    public ConcurrentChatRoom join(String roomId, User user) {
+        return rooms.compute(roomId, (id, room) -> {
+            if (room == null) {
+                room = new ConcurrentChatRoom(id);
+            }
+            room.join(user);
+            return room;
+        });
+    }
+
+    /**
+     * 用户离开聊天室
+     * @return false 表示聊天室不存在或用户不在其中
+     */
+    public boolean leave(String roomId, User user) {
+        ConcurrentChatRoom room = rooms.get(roomId);
+        return room != null && room.leave(user);
+    }
+
+    /**
+     * 向聊天室广播消息，聊天室不存在时忽略
+     */
+    public void sendMessage(String roomId, String message, User user) {
+        ConcurrentChatRoom room = rooms.get(roomId);
+        if (room != null) {
+            room.sendMessage(message, user);
+        }
+    }
+
+    public int getRoomCount() {
+        return rooms.size();
+    }
+}
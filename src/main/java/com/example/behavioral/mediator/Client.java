@@ -1,14 +1,21 @@
 package com.example.behavioral.mediator;
 
+import java.io.ByteArrayOutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 客户端
  */
 public class Client {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException {
         List<User> users = new ArrayList<>();
         ChatMediator chatMediator = new ChatRoom(users);
         
@@ -24,5 +31,67 @@ public class Client {
         user1.send("大家好，我是用户1");
         user2.send("大家好，我是用户2");
         user3.send("大家好，我是用户3");
+        System.out.println("=====================");
+        // 异步聊天室：发送者只把消息放进其他用户的信箱，由线程池中的投递任务调用 receive()
+        ForkJoinPool pool = new ForkJoinPool();
+        AsyncChatRoom asyncChatRoom = new AsyncChatRoom(pool, 1024);
+        User user4 = new User("用户4", asyncChatRoom);
+        User user5 = new User("用户5", asyncChatRoom);
+        asyncChatRoom.join(user4);
+        asyncChatRoom.join(user5);
+        user4.send("第一条消息");
+        user4.send("第二条消息"); // 用户5按发送顺序收到
+        pool.awaitQuiescence(1, TimeUnit.SECONDS);
+        // 投递策略：只关心最新状态的用户，积压时只保留最新的一条
+        User dashboard = new User("看板", asyncChatRoom);
+        asyncChatRoom.join(dashboard, DeliveryPolicy.COALESCE_LATEST);
+        user4.send("第三条消息");
+        pool.awaitQuiescence(1, TimeUnit.SECONDS);
+        System.out.print(asyncChatRoom.report());
+        pool.shutdown();
+        System.out.println("=====================");
+        // 聊天室注册表：按 id 分片管理大量聊天室，成员可以并发加入、离开
+        ChatRoomRegistry registry = new ChatRoomRegistry();
+        User user6 = new User("用户6", registry.room("lobby"));
+        User user7 = new User("用户7", registry.room("lobby"));
+        registry.join("lobby", user6);
+        registry.join("lobby", user7);
+        user6.send("大家好，我是用户6");
+        registry.leave("lobby", user7);
+        user6.send("用户7已经离开，收不到这条消息");
+        System.out.println("=====================");
+        // 消息信封：只编码一次，所有接收者共享；写到通道时直接写出编码好的帧
+        ConcurrentChatRoom room = registry.room("lobby");
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        User user8 = new ChannelUser("用户8", room, Channels.newChannel(sink));
+        room.join(user8);
+        user6.send(new MessageEnvelope("用户6", "这条消息只编码一次"));
+        ByteBuffer frames = ByteBuffer.wrap(sink.toByteArray());
+        while (frames.hasRemaining()) {
+            System.out.println("通道中的帧: " + MessageEnvelope.decode(frames));
+        }
+        System.out.println("=====================");
+        // 聊天室历史：晚加入的用户回放最近的消息
+        ConcurrentChatRoom historyRoom = new ConcurrentChatRoom("history", new RoomHistory(1024, 512));
+        User early = new User("早到的用户", historyRoom);
+        historyRoom.join(early);
+        early.send("第一条消息");
+        early.send("第二条消息");
+        User late = new User("晚到的用户", historyRoom);
+        historyRoom.join(late, 0); // 从序号 0 开始回放
+        System.out.println("=====================");
+        // 网络聊天室：远程用户通过本机 TCP 连接加入
+        try (NetworkChatServer server = new NetworkChatServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+             RemoteUser remote1 = new RemoteUser("远程用户1", server.getAddress());
+             RemoteUser remote2 = new RemoteUser("远程用户2", server.getAddress())) {
+            User user9 = new User("用户9", server);
+            server.join(user9);
+            while (server.getConnectionCount() < 2) {
+                Thread.sleep(10); // 等待服务端接受连接
+            }
+            remote1.send("大家好，我是远程用户1");
+            remote2.send("你好，我是远程用户2");
+            Thread.sleep(200); // 等待消息经过网络送达
+        }
     }
 }
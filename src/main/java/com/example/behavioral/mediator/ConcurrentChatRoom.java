@@ -0,0 +1,126 @@
+package com.example.behavioral.mediator;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 线程安全的聊天室中介者
+ * 成员保存在并发哈希集合中，加入、离开和成员判断都是 O(1)，可以在任意线程上并发进行；
+ * 广播时遍历集合是安全的，遍历过程中加入或离开的用户可能收到也可能收不到这条消息
+ */
+public class ConcurrentChatRoom implements ChatMediator {
+
+    private final String id;
+    private final Set<User> users = ConcurrentHashMap.newKeySet();
+    private final RoomHistory history; // 没有历史时为 null
+    private final LongAdder historySkipped = new LongAdder(); // 超过历史槽大小、没有写入历史的消息数
+
+    public ConcurrentChatRoom(String id) {
+        this(id, null);
+    }
+
+    /**
+     * @param history 保存最近消息的历史，晚加入的用户可以回放
+     */
+    public ConcurrentChatRoom(String id, RoomHistory history) {
+        this.id = id;
+        this.history = history;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return false 表示用户已经在聊天室中
+     */
+    public boolean join(User user) {
+        return users.add(user);
+    }
+
+    /**
+     * @return false 表示用户不在聊天室中
+     */
+    public boolean leave(User user) {
+        return users.remove(user);
+    }
+
+    /**
+     * 加入聊天室并回放从 fromSequence 开始的历史消息
+     * 先加入再回放，加入时正在广播的消息可能既实时收到、又出现在回放中
+     * @return 回放的消息数
+     */
+    public int join(User user, long fromSequence) {
+        users.add(user);
+        if (history == null) {
+            return 0;
+        }
+        List<MessageEnvelope> messages = history.replay(fromSequence);
+        for (MessageEnvelope envelope : messages) {
+            user.receive(envelope);
+        }
+        return messages.size();
+    }
+
+    /**
+     * 聊天室历史，没有时返回 null
+     */
+    public RoomHistory getHistory() {
+        return history;
+    }
+
+    public boolean contains(User user) {
+        return users.contains(user);
+    }
+
+    public int size() {
+        return users.size();
+    }
+
+    /**
+     * 超过历史槽大小、没有写入历史（但已广播）的消息数
+     */
+    public long getHistorySkippedCount() {
+        return historySkipped.sum();
+    }
+
+    @Override
+    public void sendMessage(String message, User user) {
+        if (history != null) {
+            record(new MessageEnvelope(user.name, message));
+        }
+        for (User u : users) {
+            if (u != user) { // 排除发送者自己
+                u.receive(message);
+            }
+        }
+    }
+
+    /**
+     * 所有接收者共享同一个信封，不为每个接收者重复编码
+     */
+    @Override
+    public void sendMessage(MessageEnvelope envelope, User user) {
+        if (history != null) {
+            record(envelope);
+        }
+        for (User u : users) {
+            if (u != user) {
+                u.receive(envelope);
+            }
+        }
+    }
+
+    /**
+     * 写入历史；超过历史槽大小的消息不写入历史、只计数，但仍然广播
+     */
+    private void record(MessageEnvelope envelope) {
+        if (envelope.size() > history.getMaxFrameSize()) {
+            historySkipped.increment();
+        } else {
+            history.append(envelope);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.behavioral.mediator;
+
+/**
+ * 投递策略：接收者的信箱满了（接收者处理不过来）时如何处理新消息
+ */
+public enum DeliveryPolicy {
+
+    /**
+     * 发送者等待，直到信箱有空位，最多等待允许的延迟，超时丢弃这条消息。
+     * 只等待满了的接收者，其他接收者先收到消息；慢接收者仍会拖慢发送者，适合不能轻易丢消息的场景
+     */
+    BLOCK,
+
+    /**
+     * 丢弃信箱中最旧的一条，放入新消息
+     */
+    DROP_OLDEST,
+
+    /**
+     * 丢弃新消息
+     */
+    DROP_NEWEST,
+
+    /**
+     * 丢弃信箱中积压的所有消息，只保留最新的一条。适合只关心最新状态的接收者
+     */
+    COALESCE_LATEST,
+
+    /**
+     * 信箱中最旧的消息等待超过允许的延迟时断开接收者（离开聊天室）并通知它；未超时但信箱已满时丢弃新消息。
+     * 延迟由投递任务在取消息时检查，也可以由定时任务检查
+     */
+    DISCONNECT
+}
@@ -0,0 +1,285 @@
+package com.example.behavioral.mediator;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * 用户信箱
+ * 无锁的有界消息队列：ConcurrentLinkedQueue 加一个占位计数器，入队前先用 CAS 占位，保证不超过容量。
+ * 由一个 actor 式的投递任务在执行器上逐条取出并调用 {@link User#receive(MessageEnvelope)}，
+ * 同一时刻最多只有一个投递任务在运行，所以同一个用户按入队顺序、单线程地收到消息。
+ * 信箱满时按 {@link DeliveryPolicy} 处理新消息；BLOCK 策略下等待的发送者挂起，投递任务取走消息后唤醒它们
+ */
+class Mailbox implements Runnable {
+
+    private static final int DRAIN_BATCH = 64; // 每次最多投递的消息数，之后让出线程给其他信箱
+
+    private final User user;
+    private final Executor executor;
+    private final int capacity;
+    private final DeliveryPolicy policy;
+    private final long maxLagNanos; // DISCONNECT 策略允许的最大延迟，也是 BLOCK 策略最多等待的时间
+    private final Consumer<Mailbox> onDisconnect;
+    private final Queue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final Queue<Thread> waiters = new ConcurrentLinkedQueue<>(); // BLOCK 策略下等待空位的发送者
+    private final AtomicInteger size = new AtomicInteger(); // 已占位的消息数
+    private final AtomicBoolean scheduled = new AtomicBoolean(); // 是否已提交投递任务
+    private final AtomicBoolean disconnected = new AtomicBoolean();
+    private final AtomicBoolean notified = new AtomicBoolean(); // 是否已通知用户被断开
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * @param onDisconnect 接收者因延迟过大被断开时调用，可能在投递线程、定时线程或发送者线程上调用
+     */
+    Mailbox(User user, Executor executor, int capacity, DeliveryPolicy policy, long maxLagNanos,
+            Consumer<Mailbox> onDisconnect) {
+        this.user = user;
+        this.executor = executor;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.maxLagNanos = maxLagNanos;
+        this.onDisconnect = onDisconnect;
+    }
+
+    User getUser() {
+        return user;
+    }
+
+    DeliveryPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * 消息入队，不等待；已断开的信箱直接丢弃消息
+     * @return false 表示信箱已满且策略为 BLOCK，需要调用 {@link #offerAll(List, MessageEnvelope, long)} 等待空位
+     */
+    boolean tryOffer(MessageEnvelope message) {
+        if (disconnected.get()) {
+            dropped.incrementAndGet();
+            return true;
+        }
+        while (!reserve()) {
+            switch (policy) {
+                case BLOCK:
+                    return false;
+                case DROP_OLDEST:
+                    if (queue.poll() != null) {
+                        dropped.incrementAndGet();
+                        enqueue(message); // 顶替最旧的一条，占位数不变
+                        return true;
+                    }
+                    break; // 投递任务刚好取走了消息，重新占位
+                case COALESCE_LATEST:
+                    int removed = 0;
+                    while (queue.poll() != null) {
+                        removed++;
+                    }
+                    size.addAndGet(-removed);
+                    dropped.addAndGet(removed);
+                    break; // 重新占位
+                case DISCONNECT:
+                    checkLag(System.nanoTime()); // 接收者完全卡住时投递任务无法检查，由发送者兜底
+                    dropped.incrementAndGet();
+                    return true;
+                default: // DROP_NEWEST
+                    dropped.incrementAndGet();
+                    return true;
+            }
+        }
+        enqueue(message);
+        return true;
+    }
+
+    /**
+     * BLOCK 策略：同时等待多个已满的信箱出现空位，每个信箱最多等到 startNanos + 该信箱的最大延迟；
+     * 超时、发送者被中断或接收者被断开时放弃发给该信箱的消息并计数。
+     * 发送者先登记为等待者再重试占位，之后挂起，由投递任务取走消息后唤醒，不会错过唤醒
+     * @param startNanos 开始发送的时间
+     */
+    static void offerAll(List<Mailbox> blocked, MessageEnvelope message, long startNanos) {
+        Thread sender = Thread.currentThread();
+        for (Mailbox mailbox : blocked) {
+            mailbox.waiters.add(sender);
+        }
+        try {
+            int remaining = blocked.size();
+            boolean[] done = new boolean[blocked.size()];
+            while (remaining > 0) {
+                long now = System.nanoTime();
+                long parkNanos = Long.MAX_VALUE;
+                for (int i = 0; i < done.length; i++) {
+                    if (done[i]) {
+                        continue;
+                    }
+                    Mailbox mailbox = blocked.get(i);
+                    long left = startNanos + mailbox.maxLagNanos - now;
+                    if (mailbox.reserve()) {
+                        mailbox.enqueue(message);
+                    } else if (mailbox.disconnected.get() || sender.isInterrupted() || left <= 0) {
+                        mailbox.dropped.incrementAndGet();
+                    } else {
+                        parkNanos = Math.min(parkNanos, left);
+                        continue;
+                    }
+                    done[i] = true;
+                    remaining--;
+                }
+                if (remaining > 0) {
+                    LockSupport.parkNanos(parkNanos); // 投递任务取走消息、接收者被断开或超时时返回
+                }
+            }
+        } finally {
+            for (Mailbox mailbox : blocked) {
+                mailbox.waiters.remove(sender);
+            }
+        }
+    }
+
+    private void wakeWaiters() {
+        for (Thread waiter : waiters) {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    private boolean reserve() {
+        int current;
+        while ((current = size.get()) < capacity) {
+            if (size.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void enqueue(MessageEnvelope message) {
+        queue.add(new Entry(message, System.nanoTime()));
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this);
+        }
+    }
+
+    /**
+     * 投递任务：取出一批消息交给用户；DISCONNECT 策略下取到等待超过最大延迟的消息时断开接收者。
+     * 接收者抛出 Error 时照样释放投递任务并重新提交，Error 继续向执行器传播
+     */
+    @Override
+    public void run() {
+        try {
+            deliver();
+        } finally {
+            scheduled.set(false);
+            if (!queue.isEmpty() || disconnected.get() && !notified.get()) {
+                schedule(); // 还有消息或断开通知，它们可能在 set(false) 之前到达而没有触发提交
+            }
+        }
+    }
+
+    private void deliver() {
+        for (int i = 0; i < DRAIN_BATCH; i++) {
+            Entry entry = queue.poll();
+            if (entry == null) {
+                break;
+            }
+            size.decrementAndGet();
+            if (!waiters.isEmpty()) {
+                wakeWaiters(); // 腾出了空位
+            }
+            if (!disconnected.get() && policy == DeliveryPolicy.DISCONNECT
+                    && System.nanoTime() - entry.enqueuedNanos > maxLagNanos) {
+                disconnect();
+            }
+            if (disconnected.get()) {
+                dropped.incrementAndGet(); // 断开后积压的消息不再投递
+                continue;
+            }
+            try {
+                user.receive(entry.message);
+            } catch (RuntimeException e) {
+                failed.incrementAndGet(); // 单条消息处理失败不影响后续消息
+            }
+        }
+        if (disconnected.get() && notified.compareAndSet(false, true)) {
+            try {
+                user.disconnected("延迟超过 " + maxLagNanos / 1_000_000 + " 毫秒");
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * DISCONNECT 策略：信箱中最旧的消息等待超过最大延迟时断开接收者
+     * @return 接收者是否已被断开
+     */
+    boolean checkLag(long now) {
+        if (policy == DeliveryPolicy.DISCONNECT && !disconnected.get()) {
+            Entry oldest = queue.peek();
+            if (oldest != null && now - oldest.enqueuedNanos > maxLagNanos) {
+                disconnect();
+            }
+        }
+        return disconnected.get();
+    }
+
+    /**
+     * 断开接收者：之后的消息直接丢弃，由投递任务丢弃积压的消息并通知用户
+     */
+    private void disconnect() {
+        if (disconnected.compareAndSet(false, true)) {
+            onDisconnect.accept(this);
+            wakeWaiters(); // 等待的发送者不再等待
+            schedule();
+        }
+    }
+
+    /**
+     * 信箱中积压的消息数
+     */
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * 当前延迟：信箱中最旧的消息已经等待的时间，信箱为空时为 0
+     */
+    long getLagNanos() {
+        Entry oldest = queue.peek();
+        return oldest == null ? 0 : Math.max(0, System.nanoTime() - oldest.enqueuedNanos);
+    }
+
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * 接收者处理消息时抛出异常的次数
+     */
+    long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * 信箱中的一条消息
+     */
+    private static class Entry {
+        private final MessageEnvelope message;
+        private final long enqueuedNanos; // 入队时间，用于计算延迟
+
+        Entry(MessageEnvelope message, long enqueuedNanos) {
+            this.message = message;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.behavioral.mediator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 消息信封
+ * 不可变，创建时把发送者和消息内容一次性编码为一个只读的 ByteBuffer 帧，
+ * 广播时所有接收者共享同一个信封，不再为每个接收者重复编码或拼接字符串；
+ * 需要写到网络或文件时直接写出帧，不需要重新编码。
+ *
+ * 帧格式（大端序）：
+ * <pre>
+ * int   length          后续字节数
+ * short senderLength
+ * senderLength 个字节   发送者名字（UTF-8）
+ * 剩余字节             消息内容（UTF-8）
+ * </pre>
+ */
+public final class MessageEnvelope {
+
+    public static final int HEADER_SIZE = 4; // 长度前缀
+
+    private final ByteBuffer frame; // 只读，position 为 0
+    private String sender; // 按需解码，多线程重复解码结果相同
+    private String text;
+
+    /**
+     * 编码消息
+     */
+    public MessageEnvelope(String sender, String text) {
+        byte[] senderBytes = sender.getBytes(StandardCharsets.UTF_8);
+        byte[] textBytes = text.getBytes(StandardCharsets.UTF_8);
+        if (senderBytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("发送者名字过长");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 2 + senderBytes.length + textBytes.length);
+        buffer.putInt(2 + senderBytes.length + textBytes.length)
+                .putShort((short) senderBytes.length)
+                .put(senderBytes)
+                .put(textBytes)
+                .flip();
+        this.frame = buffer.asReadOnlyBuffer();
+        this.sender = sender;
+        this.text = text;
+    }
+
+    private MessageEnvelope(ByteBuffer frame) {
+        this.frame = frame;
+    }
+
+    /**
+     * 从缓冲区当前位置读取一个完整的帧，读取后位置移到帧末尾。
+     * 不复制数据，信封引用缓冲区中的这段字节，调用方之后不应再修改这段内容
+     * @throws IllegalArgumentException 帧不完整或格式错误
+     */
+    public static MessageEnvelope decode(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_SIZE) {
+            throw new IllegalArgumentException("帧不完整");
+        }
+        int length = buffer.getInt(buffer.position());
+        if (length < 2 || buffer.remaining() < HEADER_SIZE + length) {
+            throw new IllegalArgumentException("帧不完整或长度非法: " + length);
+        }
+        ByteBuffer frame = buffer.slice(buffer.position(), HEADER_SIZE + length).asReadOnlyBuffer();
+        int senderLength = frame.getShort(HEADER_SIZE);
+        if (senderLength < 0 || senderLength > length - 2) {
+            throw new IllegalArgumentException("发送者长度非法: " + senderLength);
+        }
+        buffer.position(buffer.position() + HEADER_SIZE + length);
+        return new MessageEnvelope(frame);
+    }
+
+    public String getSender() {
+        String result = sender;
+        if (result == null) {
+            result = decode(HEADER_SIZE + 2, senderLength());
+            sender = result;
+        }
+        return result;
+    }
+
+    public String getText() {
+        String result = text;
+        if (result == null) {
+            int offset = HEADER_SIZE + 2 + senderLength();
+            result = decode(offset, frame.limit() - offset);
+            text = result;
+        }
+        return result;
+    }
+
+    /**
+     * 发送者是否为 sender（按编码后的字节比较，不解码）
+     * @param sender 发送者名字的 UTF-8 编码
+     */
+    boolean isSentBy(byte[] sender) {
+        int length = senderLength();
+        return length == sender.length && frame.slice(HEADER_SIZE + 2, length).equals(ByteBuffer.wrap(sender));
+    }
+
+    private int senderLength() {
+        return frame.getShort(HEADER_SIZE);
+    }
+
+    private String decode(int offset, int length) {
+        byte[] bytes = new byte[length];
+        frame.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 编码后的帧（含长度前缀）
+     * 返回共享内容的只读视图，各自拥有独立的 position，可以同时交给多个接收者写出
+     */
+    public ByteBuffer frame() {
+        return frame.duplicate();
+    }
+
+    /**
+     * 帧的总字节数
+     */
+    public int size() {
+        return frame.limit();
+    }
+
+    /**
+     * 把整个帧写到通道
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer view = frame();
+        while (view.hasRemaining()) {
+            channel.write(view);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getSender() + ": " + getText();
+    }
+}
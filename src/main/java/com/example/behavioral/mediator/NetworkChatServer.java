@@ -0,0 +1,543 @@
+package com.example.behavioral.mediator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 网络聊天室中介者
+ * 基于 NIO 选择器的非阻塞服务端，远程客户端（见 {@link RemoteUser}）通过 TCP 连接加入聊天室，
+ * 进程内的 {@link User} 通过 {@link #join(User)} 加入，两者互相收发消息。
+ *
+ * <ul>
+ *     <li>帧格式与 {@link MessageEnvelope} 相同（长度前缀）。连接后的第一帧是登记帧，发送者字段即该连接的用户名；
+ *     之后收到的帧原样转发给其他连接，不重新编码，只有发送者与登记的用户名不一致时才按登记的用户名重新编码</li>
+ *     <li>每个 CPU 核一个选择器线程，第一个线程同时负责接受连接，新连接轮流分配给各线程</li>
+ *     <li>读取时从直接缓冲区池借用缓冲区，没有半帧数据的连接不占用缓冲区，大量空闲连接的内存很小</li>
+ *     <li>发往同一连接的多个帧用一次聚集写（gathering write）写出，写不完时注册 OP_WRITE 等待</li>
+ *     <li>每个连接最多积压 maxPendingFrames 个待写帧，满了按 {@link DeliveryPolicy} 处理，慢客户端不会耗尽内存；
+ *     选择器线程不能阻塞，所以不支持 BLOCK</li>
+ * </ul>
+ * 进程内用户的 receive 在选择器线程上调用，不应阻塞
+ */
+public class NetworkChatServer implements ChatMediator, AutoCloseable {
+
+    private static final int BUFFER_SIZE = 64 * 1024; // 读缓冲区大小，也是单帧的最大字节数
+    private static final int GATHER_LIMIT = 64; // 一次聚集写最多的帧数
+    private static final int DEFAULT_MAX_PENDING_FRAMES = 1024;
+    private static final Duration DEFAULT_MAX_LAG = Duration.ofSeconds(10);
+
+    private final ServerSocketChannel server;
+    private final EventLoop[] loops;
+    private final BufferPool pool;
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final Set<User> localUsers = ConcurrentHashMap.newKeySet();
+    private final int maxPendingFrames;
+    private final DeliveryPolicy policy;
+    private final long maxLagNanos;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder disconnected = new LongAdder();
+    private int nextLoop; // 只在接受连接的线程上访问
+    private volatile boolean closed;
+
+    /**
+     * 每个 CPU 核一个选择器线程
+     * @param address 监听地址，端口为 0 时自动分配
+     */
+    public NetworkChatServer(InetSocketAddress address) {
+        this(address, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 每个连接最多积压 1024 帧，写不动超过 10 秒时断开
+     * @param address 监听地址，端口为 0 时自动分配
+     * @param loopCount 选择器线程数
+     */
+    public NetworkChatServer(InetSocketAddress address, int loopCount) {
+        this(address, loopCount, DEFAULT_MAX_PENDING_FRAMES, DeliveryPolicy.DISCONNECT, DEFAULT_MAX_LAG);
+    }
+
+    /**
+     * @param address 监听地址，端口为 0 时自动分配
+     * @param loopCount 选择器线程数
+     * @param maxPendingFrames 每个连接最多积压的待写帧数
+     * @param policy 待写帧满时的处理策略，不支持 BLOCK
+     * @param maxLag DISCONNECT 策略下连接写不动超过该时间时断开
+     */
+    public NetworkChatServer(InetSocketAddress address, int loopCount, int maxPendingFrames,
+                             DeliveryPolicy policy, Duration maxLag) {
+        if (loopCount <= 0 || maxPendingFrames <= 0) {
+            throw new IllegalArgumentException("选择器线程数和待写帧数必须大于 0");
+        }
+        if (policy == DeliveryPolicy.BLOCK) {
+            throw new IllegalArgumentException("选择器线程不能阻塞，网络连接不支持 BLOCK 策略");
+        }
+        this.maxPendingFrames = maxPendingFrames;
+        this.policy = policy;
+        this.maxLagNanos = maxLag.toNanos();
+        pool = new BufferPool(BUFFER_SIZE, loopCount * 64);
+        try {
+            server = ServerSocketChannel.open();
+            server.bind(address, 4096);
+            server.configureBlocking(false);
+            loops = new EventLoop[loopCount];
+            for (int i = 0; i < loopCount; i++) {
+                loops[i] = new EventLoop(Selector.open());
+            }
+            server.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (int i = 0; i < loopCount; i++) {
+            Thread thread = new Thread(loops[i], "chat-selector-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * 实际监听的地址
+     */
+    public InetSocketAddress getAddress() {
+        try {
+            return (InetSocketAddress) server.getLocalAddress();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 进程内用户加入聊天室
+     */
+    public void join(User user) {
+        localUsers.add(user);
+    }
+
+    public void leave(User user) {
+        localUsers.remove(user);
+    }
+
+    /**
+     * 当前的远程连接数
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * 待写帧满时按策略丢弃的帧数
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * 因写不动被断开的连接数（DISCONNECT 策略）
+     */
+    public long getDisconnectedCount() {
+        return disconnected.sum();
+    }
+
+    @Override
+    public void sendMessage(String message, User user) {
+        sendMessage(new MessageEnvelope(user.name, message), user);
+    }
+
+    /**
+     * 进程内用户发送消息：交给其他进程内用户和所有远程连接
+     * @throws IllegalArgumentException 帧超过单帧的最大字节数，远程用户无法接收
+     */
+    @Override
+    public void sendMessage(MessageEnvelope envelope, User user) {
+        if (envelope.size() > BUFFER_SIZE) {
+            throw new IllegalArgumentException("消息过长: " + envelope.size() + " 字节");
+        }
+        broadcast(envelope, user, null);
+    }
+
+    private void broadcast(MessageEnvelope envelope, User fromUser, Connection fromConnection) {
+        for (User u : localUsers) {
+            if (u != fromUser) {
+                u.receive(envelope);
+            }
+        }
+        for (Connection connection : connections) {
+            if (connection != fromConnection) {
+                connection.enqueue(envelope.frame());
+            }
+        }
+    }
+
+    /**
+     * 停止服务，关闭所有连接
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (EventLoop loop : loops) {
+            loop.selector.wakeup();
+        }
+        try {
+            server.close();
+        } catch (IOException e) {
+            // 忽略
+        }
+    }
+
+    /**
+     * 选择器线程
+     */
+    private class EventLoop implements Runnable {
+        private final Selector selector;
+        private final Queue<SocketChannel> registrations = new ConcurrentLinkedQueue<>(); // 待注册的新连接
+        private final Queue<Connection> flushes = new ConcurrentLinkedQueue<>(); // 有待写数据的连接
+        private final AtomicBoolean wakeupPending = new AtomicBoolean();
+        private final ByteBuffer[] gather = new ByteBuffer[GATHER_LIMIT];
+
+        EventLoop(Selector selector) {
+            this.selector = selector;
+        }
+
+        /**
+         * 唤醒选择器，已经有未处理的唤醒时不再重复调用
+         */
+        void wakeup() {
+            if (wakeupPending.compareAndSet(false, true)) {
+                selector.wakeup();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    selector.select();
+                    wakeupPending.set(false);
+                    SocketChannel channel;
+                    while ((channel = registrations.poll()) != null) {
+                        register(channel);
+                    }
+                    Connection connection;
+                    while ((connection = flushes.poll()) != null) {
+                        connection.flushScheduled.set(false);
+                        flush(connection);
+                    }
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        handle(key);
+                    }
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                // 选择器失效，退出线程
+            } finally {
+                shutdown();
+            }
+        }
+
+        private void handle(SelectionKey key) {
+            if (!key.isValid()) {
+                return;
+            }
+            if (key.isAcceptable()) {
+                accept();
+                return;
+            }
+            Connection connection = (Connection) key.attachment();
+            try {
+                if (key.isReadable()) {
+                    read(connection);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    flush(connection);
+                }
+            } catch (IOException e) {
+                connection.close();
+            }
+        }
+
+        private void accept() {
+            try {
+                SocketChannel channel;
+                while ((channel = server.accept()) != null) {
+                    EventLoop loop = loops[Math.floorMod(nextLoop++, loops.length)];
+                    loop.registrations.add(channel);
+                    if (loop == this) {
+                        register(loop.registrations.poll());
+                    } else {
+                        loop.wakeup();
+                    }
+                }
+            } catch (IOException e) {
+                // 接受失败的连接由客户端重试
+            }
+        }
+
+        private void register(SocketChannel channel) {
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                Connection connection = new Connection(channel, this);
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                connections.add(connection);
+            } catch (IOException e) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // 忽略
+                }
+            }
+        }
+
+        /**
+         * 读取并拆分帧；每个完整的帧复制一次到堆上，由所有接收者共享
+         */
+        private void read(Connection connection) throws IOException {
+            ByteBuffer buffer = connection.readBuffer != null ? connection.readBuffer : pool.acquire();
+            connection.readBuffer = null;
+            int n;
+            try {
+                n = connection.channel.read(buffer);
+            } catch (IOException e) {
+                pool.release(buffer);
+                throw e;
+            }
+            if (n < 0) {
+                pool.release(buffer);
+                connection.close();
+                return;
+            }
+            buffer.flip();
+            while (buffer.remaining() >= MessageEnvelope.HEADER_SIZE) {
+                int length = buffer.getInt(buffer.position());
+                if (length < 2 || MessageEnvelope.HEADER_SIZE + length > pool.getBufferSize()) {
+                    pool.release(buffer);
+                    connection.close(); // 协议错误或帧过大
+                    return;
+                }
+                if (buffer.remaining() < MessageEnvelope.HEADER_SIZE + length) {
+                    break; // 半帧，等待后续数据
+                }
+                ByteBuffer frame = ByteBuffer.allocate(MessageEnvelope.HEADER_SIZE + length);
+                frame.put(buffer.slice(buffer.position(), frame.capacity())).flip();
+                buffer.position(buffer.position() + frame.capacity());
+                MessageEnvelope envelope;
+                try {
+                    envelope = MessageEnvelope.decode(frame);
+                } catch (IllegalArgumentException e) {
+                    pool.release(buffer);
+                    connection.close();
+                    return;
+                }
+                if (connection.name == null) {
+                    String name = envelope.getSender(); // 第一帧是登记帧，不转发
+                    if (name.isEmpty()) {
+                        pool.release(buffer);
+                        connection.close();
+                        return;
+                    }
+                    connection.name = name;
+                    connection.nameBytes = name.getBytes(StandardCharsets.UTF_8);
+                    continue;
+                }
+                if (!envelope.isSentBy(connection.nameBytes)) {
+                    envelope = new MessageEnvelope(connection.name, envelope.getText()); // 不能冒用他人的名字
+                }
+                broadcast(envelope, null, connection);
+            }
+            if (buffer.hasRemaining()) {
+                buffer.compact(); // 保留半帧
+                connection.readBuffer = buffer;
+            } else {
+                pool.release(buffer); // 没有剩余数据，归还缓冲区
+            }
+        }
+
+        /**
+         * 把待写的帧用聚集写写出，写不完时注册 OP_WRITE
+         */
+        private void flush(Connection connection) {
+            if (connection.evicted.get()) {
+                connection.close(); // 写不动超过允许的延迟
+                return;
+            }
+            if (!connection.key.isValid()) {
+                connection.outbound.clear();
+                return;
+            }
+            ByteBuffer frame;
+            while ((frame = connection.outbound.poll()) != null) {
+                connection.writing.add(frame);
+            }
+            try {
+                while (!connection.writing.isEmpty()) {
+                    int count = 0;
+                    for (ByteBuffer pending : connection.writing) {
+                        gather[count++] = pending;
+                        if (count == GATHER_LIMIT) {
+                            break;
+                        }
+                    }
+                    connection.channel.write(gather, 0, count);
+                    boolean drained = !gather[count - 1].hasRemaining();
+                    while (!connection.writing.isEmpty() && !connection.writing.peek().hasRemaining()) {
+                        connection.writing.poll();
+                        connection.pending.decrementAndGet();
+                    }
+                    if (!drained) {
+                        break; // 内核发送缓冲区已满
+                    }
+                }
+            } catch (IOException e) {
+                connection.close();
+                return;
+            } finally {
+                Arrays.fill(gather, null);
+            }
+            if (connection.writing.isEmpty()) {
+                connection.stalledSince = 0;
+            } else if (connection.stalledSince == 0) {
+                connection.stalledSince = System.nanoTime();
+            }
+            int ops = connection.writing.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+            if (connection.key.interestOps() != ops) {
+                connection.key.interestOps(ops);
+            }
+        }
+
+        private void shutdown() {
+            for (SelectionKey key : new ArrayList<>(selector.keys())) {
+                if (key.attachment() instanceof Connection) {
+                    ((Connection) key.attachment()).close();
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // 忽略
+            }
+        }
+    }
+
+    /**
+     * 一个远程连接
+     */
+    private class Connection {
+        private final SocketChannel channel;
+        private final EventLoop loop;
+        private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>(); // 其他线程放入的待写帧
+        private final ArrayDeque<ByteBuffer> writing = new ArrayDeque<>(); // 正在写的帧，只在选择器线程上访问
+        private final AtomicInteger pending = new AtomicInteger(); // 尚未写完的帧数（outbound + writing），入队前先占位
+        private final AtomicBoolean flushScheduled = new AtomicBoolean();
+        private final AtomicBoolean evicted = new AtomicBoolean(); // 已决定断开，由选择器线程关闭
+        private volatile long stalledSince; // 开始写不动（内核发送缓冲区满）的时间，0 表示没有积压
+        private SelectionKey key;
+        private ByteBuffer readBuffer; // 保存半帧的缓冲区，没有半帧时为 null
+        private String name; // 登记的用户名，收到登记帧之前为 null，只在选择器线程上访问
+        private byte[] nameBytes;
+
+        Connection(SocketChannel channel, EventLoop loop) {
+            this.channel = channel;
+            this.loop = loop;
+        }
+
+        /**
+         * 放入待写的帧，由所属的选择器线程写出；积压满时按投递策略处理
+         */
+        void enqueue(ByteBuffer frame) {
+            while (!reserve()) {
+                switch (policy) {
+                    case DROP_OLDEST:
+                        dropped.increment();
+                        if (outbound.poll() == null) {
+                            return; // 积压的帧都已经在写，不能丢弃，只能丢弃新帧
+                        }
+                        outbound.add(frame); // 顶替最旧的一帧，占位数不变
+                        scheduleFlush();
+                        return;
+                    case COALESCE_LATEST:
+                        int removed = 0;
+                        while (outbound.poll() != null) {
+                            removed++;
+                        }
+                        if (removed == 0) {
+                            dropped.increment();
+                            return;
+                        }
+                        pending.addAndGet(-removed);
+                        dropped.add(removed);
+                        break; // 重新占位
+                    case DISCONNECT:
+                        long since = stalledSince;
+                        if (since != 0 && System.nanoTime() - since > maxLagNanos && evicted.compareAndSet(false, true)) {
+                            disconnected.increment();
+                            scheduleFlush(); // 由选择器线程关闭连接
+                        }
+                        dropped.increment();
+                        return;
+                    default: // DROP_NEWEST
+                        dropped.increment();
+                        return;
+                }
+            }
+            outbound.add(frame);
+            scheduleFlush();
+        }
+
+        private boolean reserve() {
+            int current;
+            while ((current = pending.get()) < maxPendingFrames) {
+                if (pending.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void scheduleFlush() {
+            if (flushScheduled.compareAndSet(false, true)) {
+                loop.flushes.add(this);
+                loop.wakeup();
+            }
+        }
+
+        void close() {
+            connections.remove(this);
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // 忽略
+            }
+            if (readBuffer != null) {
+                pool.release(readBuffer);
+                readBuffer = null;
+            }
+            outbound.clear();
+            writing.clear();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.behavioral.mediator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * 远程用户
+ * 通过 TCP 连接加入 {@link NetworkChatServer}：连接后先发送登记帧登记用户名，
+ * 持有的中介者是服务端的本地代理，send() 把消息编码为帧写到连接上；后台线程读取服务端转发的帧，调用 receive()
+ */
+public class RemoteUser extends User implements AutoCloseable {
+
+    private static final int MAX_FRAME_SIZE = 64 * 1024;
+
+    private final SocketChannel channel;
+
+    /**
+     * 连接服务端并开始接收消息
+     */
+    public RemoteUser(String name, InetSocketAddress server) {
+        super(name, new RemoteMediator(connect(server)));
+        this.channel = ((RemoteMediator) chatMediator).channel;
+        chatMediator.sendMessage(new MessageEnvelope(name, ""), this); // 登记帧：服务端以此作为该连接的用户名
+        Thread reader = new Thread(this::readLoop, "remote-user-" + name);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private static SocketChannel connect(InetSocketAddress server) {
+        try {
+            SocketChannel channel = SocketChannel.open(server);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            return channel;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 读取服务端转发的帧；帧头声明的长度超过缓冲区时关闭连接，不会因缓冲区装不下而空转
+     */
+    private void readLoop() {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_FRAME_SIZE);
+        try {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.remaining() >= MessageEnvelope.HEADER_SIZE) {
+                    int length = buffer.getInt(buffer.position());
+                    if (length < 2 || MessageEnvelope.HEADER_SIZE + length > MAX_FRAME_SIZE) {
+                        throw new IllegalArgumentException("帧长度非法: " + length); // 协议错误或帧过大
+                    }
+                    if (buffer.remaining() < MessageEnvelope.HEADER_SIZE + length) {
+                        break; // 半帧，等待后续数据
+                    }
+                    ByteBuffer frame = ByteBuffer.allocate(MessageEnvelope.HEADER_SIZE + length);
+                    frame.put(buffer.slice(buffer.position(), frame.capacity())).flip();
+                    buffer.position(buffer.position() + frame.capacity());
+                    receive(MessageEnvelope.decode(frame));
+                }
+                buffer.compact();
+            }
+        } catch (IOException | RuntimeException e) {
+            // 连接关闭或帧格式错误，停止接收
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * 断开连接
+     */
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // 忽略
+        }
+    }
+
+    /**
+     * 服务端中介者的本地代理
+     */
+    private static class RemoteMediator implements ChatMediator {
+        private final SocketChannel channel;
+
+        RemoteMediator(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void sendMessage(String message, User user) {
+            sendMessage(new MessageEnvelope(user.name, message), user);
+        }
+
+        @Override
+        public void sendMessage(MessageEnvelope envelope, User user) {
+            if (envelope.size() > MAX_FRAME_SIZE) {
+                throw new IllegalArgumentException("消息过长: " + envelope.size() + " 字节");
+            }
+            synchronized (channel) {
+                try {
+                    envelope.writeTo(channel);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+}
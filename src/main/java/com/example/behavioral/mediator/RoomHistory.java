@@ -0,0 +1,159 @@
+package com.example.behavioral.mediator;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 聊天室历史
+ * 固定容量的堆外环形缓冲区，保存最近的 capacity 条消息（编码后的帧），按序号编号；
+ * 晚加入或重新连接的用户可以从某个序号开始回放。内存在创建时一次分配，之后不再增长。
+ *
+ * 每条消息占一个固定大小的槽：
+ * <pre>
+ * long stamp   2 * 序号 + 1 表示正在写，2 * 序号 + 2 表示写完，0 表示从未写过
+ * int  length  帧的字节数
+ * 帧
+ * </pre>
+ * 写入者用 CAS 领取序号后各自写自己的槽，不加锁；只有环形缓冲区绕回一圈、
+ * 目标槽上一轮的写入还没结束时才短暂自旋等待。
+ * 回放时先读取各槽的 stamp，再把各槽中的帧（只复制帧本身的长度）复制到一块堆内存，最后重新检查 stamp（顺序锁），
+ * 复制期间被覆盖的槽丢弃，回放不会阻塞写入者
+ */
+public class RoomHistory {
+
+    private static final VarHandle STAMP = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final int HEADER_SIZE = 8 + 4;
+
+    private final int capacity;
+    private final int slotSize;
+    private final ByteBuffer slots; // 堆外内存
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    /**
+     * @param capacity 保存的消息条数
+     * @param maxFrameSize 单条消息帧的最大字节数，超过的消息不能写入历史
+     */
+    public RoomHistory(int capacity, int maxFrameSize) {
+        if (capacity <= 0 || maxFrameSize <= 0) {
+            throw new IllegalArgumentException("容量和最大帧长度必须大于 0");
+        }
+        this.capacity = capacity;
+        this.slotSize = (HEADER_SIZE + maxFrameSize + 7) & ~7; // 8 字节对齐，stamp 才能原子读写
+        if ((long) capacity * slotSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("历史缓冲区超过 2GB");
+        }
+        this.slots = ByteBuffer.allocateDirect(capacity * slotSize);
+    }
+
+    /**
+     * 追加消息
+     * @return 消息的序号
+     * @throws IllegalArgumentException 消息帧超过最大长度
+     */
+    public long append(MessageEnvelope envelope) {
+        ByteBuffer frame = envelope.frame();
+        if (frame.remaining() > slotSize - HEADER_SIZE) {
+            throw new IllegalArgumentException("消息帧 " + frame.remaining() + " 字节，超过历史槽大小");
+        }
+        long sequence = nextSequence.getAndIncrement();
+        int offset = offset(sequence);
+        long previous = sequence < capacity ? 0 : completed(sequence - capacity);
+        while ((long) STAMP.getVolatile(slots, offset) != previous) {
+            Thread.onSpinWait(); // 上一轮写入这个槽的写入者还没写完
+        }
+        STAMP.setVolatile(slots, offset, 2 * sequence + 1);
+        slots.putInt(offset + 8, frame.remaining());
+        slots.put(offset + HEADER_SIZE, frame, frame.position(), frame.remaining());
+        STAMP.setRelease(slots, offset, completed(sequence));
+        return sequence;
+    }
+
+    /**
+     * 回放从 fromSequence 开始、目前已经写完的连续消息
+     * 早于 {@link #getOldestSequence()} 的消息已被覆盖，从最旧的一条开始回放
+     * @return 按序号排列的消息，帧引用同一块复制出来的堆内存
+     */
+    public List<MessageEnvelope> replay(long fromSequence) {
+        long end = nextSequence.get();
+        long start = Math.max(fromSequence, Math.max(0, end - capacity));
+        List<MessageEnvelope> messages = new ArrayList<>();
+        if (start >= end) {
+            return messages;
+        }
+        int count = (int) (end - start);
+        // 1. 复制前读取 stamp，遇到没写完的槽就停止
+        for (int i = 0; i < count; i++) {
+            if ((long) STAMP.getAcquire(slots, offset(start + i)) != completed(start + i)) {
+                count = i;
+                break;
+            }
+        }
+        if (count == 0) {
+            return messages;
+        }
+        // 2. 只复制各槽中帧的实际长度，消息远小于槽时不复制空白部分
+        int maxFrameSize = slotSize - HEADER_SIZE;
+        int[] lengths = new int[count];
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            int length = slots.getInt(offset(start + i) + 8);
+            lengths[i] = Math.min(Math.max(length, 0), maxFrameSize); // 复制期间被覆盖时长度可能不一致，第 3 步会丢弃
+            total += lengths[i];
+        }
+        ByteBuffer copy = ByteBuffer.allocate(total);
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            copy.put(position, slots, offset(start + i) + HEADER_SIZE, lengths[i]);
+            position += lengths[i];
+        }
+        // 3. 重新检查 stamp：复制期间被新一轮写入覆盖的槽（只可能是最旧的几条）丢弃
+        VarHandle.acquireFence();
+        position = 0;
+        for (int i = 0; i < count; i++) {
+            int length = lengths[i];
+            if ((long) STAMP.getAcquire(slots, offset(start + i)) == completed(start + i)) {
+                messages.add(MessageEnvelope.decode(copy.slice(position, length)));
+            }
+            position += length;
+        }
+        return messages;
+    }
+
+    /**
+     * 下一条消息的序号，也就是已经写入的消息总数
+     */
+    public long getNextSequence() {
+        return nextSequence.get();
+    }
+
+    /**
+     * 历史中最旧的消息的序号
+     */
+    public long getOldestSequence() {
+        return Math.max(0, nextSequence.get() - capacity);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 单条消息帧的最大字节数，超过的消息不能写入历史
+     */
+    public int getMaxFrameSize() {
+        return slotSize - HEADER_SIZE;
+    }
+
+    private int offset(long sequence) {
+        return (int) (sequence % capacity) * slotSize;
+    }
+
+    private static long completed(long sequence) {
+        return 2 * sequence + 2;
+    }
+}
@@ -17,7 +17,19 @@ public class User {
         chatMediator.sendMessage(message, this);
     }
 
+    public void send(MessageEnvelope envelope) { // 发送已编码的消息
+        chatMediator.sendMessage(envelope, this);
+    }
+
     public void receive(String message) { // 收到消息
         System.out.println(name + "收到消息: " + message);
     }
+
+    public void receive(MessageEnvelope envelope) { // 收到消息信封，默认按文本处理
+        receive(envelope.getText());
+    }
+
+    public void disconnected(String reason) { // 因处理不过来被中介者断开
+        System.out.println(name + "被断开: " + reason);
+    }
 }
@@ -14,6 +14,17 @@ public class Client {
         textEditor.restore(history.pop());
         System.out.println("=====================");
         System.out.println(textEditor.getContent());
+        System.out.println("=====================");
+        // 增量备忘录：大文档的小修改只保存差异
+        String document = "备忘录".repeat(10_000);
+        textEditor.setContent(document);
+        history.add(textEditor.save());
+        textEditor.setContent(document + "，追加一句");
+        EditorMemento delta = textEditor.save();
+        history.add(delta);
+        textEditor.setContent("");
+        textEditor.restore(history.pop());
+        System.out.println("快照: " + delta.isSnapshot() + "，恢复后长度: " + textEditor.getContent().length());
     }
 
 }
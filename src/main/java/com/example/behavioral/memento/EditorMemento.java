@@ -1,22 +1,98 @@
 package com.example.behavioral.memento;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+
 /**
  * 备忘录
+ * 不可变，分为两种：
+ * <ul>
+ *     <li>快照：保存完整内容</li>
+ *     <li>增量：只保存相对上一个备忘录的差异（公共前缀、公共后缀的长度和中间替换的文本），
+ *     恢复时从最近的快照开始依次应用增量</li>
+ * </ul>
+ * 大文档做小修改时，增量只占修改部分的大小，历史记录的内存不再随“文档大小 × 修改次数”增长
  */
 public class EditorMemento {
 
-    private String content; // 内容
+    private final String content; // 快照的完整内容，增量时为 null
+    private final EditorMemento previous; // 增量基于的备忘录，快照时为 null
+    private final int prefixLength; // 与上一个状态相同的前缀长度
+    private final int suffixLength; // 与上一个状态相同的后缀长度
+    private final String inserted; // 替换中间部分的文本
+    private final int depth; // 距离最近快照的增量个数
 
+    /**
+     * 快照
+     */
     public EditorMemento(String content) {
         this.content = content;
+        this.previous = null;
+        this.prefixLength = 0;
+        this.suffixLength = 0;
+        this.inserted = null;
+        this.depth = 0;
+    }
+
+    /**
+     * 增量：内容 = 上一个状态[0, prefixLength) + inserted + 上一个状态的最后 suffixLength 个字符
+     */
+    EditorMemento(EditorMemento previous, int prefixLength, int suffixLength, String inserted) {
+        this.content = null;
+        this.previous = previous;
+        this.prefixLength = prefixLength;
+        this.suffixLength = suffixLength;
+        this.inserted = inserted;
+        this.depth = previous.depth + 1;
+    }
+
+    /**
+     * 计算 content 相对 previous 状态（内容为 previousContent）的增量
+     */
+    static EditorMemento diff(EditorMemento previous, String previousContent, String content) {
+        int max = Math.min(previousContent.length(), content.length());
+        int prefix = 0;
+        while (prefix < max && previousContent.charAt(prefix) == content.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < max - prefix
+                && previousContent.charAt(previousContent.length() - 1 - suffix) == content.charAt(content.length() - 1 - suffix)) {
+            suffix++;
+        }
+        return new EditorMemento(previous, prefix, suffix, content.substring(prefix, content.length() - suffix));
     }
 
     public String getContent() {
-        return content;
+        if (previous == null) {
+            return content;
+        }
+        // 回溯到最近的快照，再依次应用增量
+        Deque<EditorMemento> deltas = new ArrayDeque<>();
+        EditorMemento memento = this;
+        while (memento.previous != null) {
+            deltas.push(memento);
+            memento = memento.previous;
+        }
+        StringBuilder sb = new StringBuilder(memento.content);
+        for (EditorMemento delta : deltas) {
+            sb.replace(delta.prefixLength, sb.length() - delta.suffixLength, delta.inserted);
+        }
+        return sb.toString();
     }
 
-    public void setContent(String content) {
-        this.content = content;
+    /**
+     * 是否是快照
+     */
+    public boolean isSnapshot() {
+        return previous == null;
+    }
+
+    /**
+     * 距离最近快照的增量个数，快照为 0
+     */
+    int getDepth() {
+        return depth;
     }
 
 }
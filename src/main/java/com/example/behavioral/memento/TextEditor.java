@@ -5,8 +5,27 @@ package com.example.behavioral.memento;
  */
 public class TextEditor {
 
+    private static final int DEFAULT_SNAPSHOT_INTERVAL = 16;
+
     private String content;
+    private final int snapshotInterval; // 每隔多少个备忘录保存一次快照
+    private EditorMemento last; // 最近保存或恢复的备忘录，下一个增量基于它
+    private String lastContent; // last 对应的内容
+
+
+    public TextEditor() {
+        this(DEFAULT_SNAPSHOT_INTERVAL);
+    }
 
+    /**
+     * @param snapshotInterval 每隔多少个备忘录保存一次完整快照，1 表示每次都保存快照
+     */
+    public TextEditor(int snapshotInterval) {
+        if (snapshotInterval <= 0) {
+            throw new IllegalArgumentException("快照间隔必须大于 0");
+        }
+        this.snapshotInterval = snapshotInterval;
+    }
 
     public String getContent() {
         return content;
@@ -18,10 +37,19 @@ public class TextEditor {
 
     /**
      * 保存
+     * 只保存相对上一个备忘录的差异，每隔 snapshotInterval 个保存一次完整快照
      * @return
      */
     public EditorMemento save() {
-        return new EditorMemento(content); // 创建备忘录
+        EditorMemento memento;
+        if (last == null || content == null || lastContent == null || last.getDepth() + 1 >= snapshotInterval) {
+            memento = new EditorMemento(content); // 创建快照
+        } else {
+            memento = EditorMemento.diff(last, lastContent, content); // 创建增量
+        }
+        last = memento;
+        lastContent = content;
+        return memento;
     }
 
     /**
@@ -30,6 +58,8 @@ public class TextEditor {
      */
     public void restore(EditorMemento memento) {
         this.content = memento.getContent();
+        this.last = memento; // 之后的增量基于恢复到的状态
+        this.lastContent = content;
     }
 
 }